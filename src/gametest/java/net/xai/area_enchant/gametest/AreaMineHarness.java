@@ -0,0 +1,468 @@
+package net.xai.area_enchant.gametest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.mojang.authlib.GameProfile;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.fabricmc.fabric.api.entity.FakePlayer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.gametest.v1.GameTest;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.test.TestContext;
+import net.minecraft.util.Hand;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.xai.area_enchant.AreaEnchantMod;
+import net.xai.area_enchant.AreaMineHandler;
+import net.xai.area_enchant.AreaMineLog;
+import net.xai.area_enchant.BatchedBlockBreaker;
+import net.xai.area_enchant.MiningMetrics;
+import net.xai.area_enchant.PlayerDataManager;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * End-to-end mining throughput on a real (headless) server: ./gradlew runGameTest
+ *
+ * Builds one block of generated underground per fake player from a fixed seed, measures a number
+ * of idle ticks as the baseline, then has every player mine through their block with the Area Mine
+ * pickaxe - a real break through the interaction manager, so the whole path runs: the break
+ * events, AreaMineHandler, the planner and BatchedBlockBreaker. Players cycle through
+ * the configured patterns and start their next activation once the previous one has finished.
+ *
+ * Measured per tick on the server thread (start to end of the tick): MSPT and allocated bytes,
+ * plus blocks broken (MiningMetrics), block packets (BlockPacketCounter, per watching player) and the
+ * per-stage timings of /areamine perf. Everything goes into a JSON report for comparing builds.
+ *
+ * Settings are system properties (-Pareamine.harness.<name>=... on the gradle command line):
+ *   players (4), activations per player (24), seed (1234), patterns (all six), level (0 = highest
+ *   configured), size of each player's block (32), baselineTicks (100), report (area-mine-harness.json)
+ */
+public class AreaMineHarness {
+    private static final String PREFIX = "areamine.harness.";
+    private static final String[] ALL_PATTERNS = {"cube", "sphere", "tunnel", "cross", "layer", "vertical"};
+    // Ticks to wait after the last activation finished, for ore breaks and drops still in flight
+    private static final int SETTLE_TICKS = 20;
+
+    private static Run current; // Set while a run is going
+    private static boolean listenersRegistered = false;
+
+    @GameTest(maxTicks = 24000)
+    public void miningThroughput(TestContext context) {
+        if (!listenersRegistered) {
+            listenersRegistered = true;
+            ServerTickEvents.START_SERVER_TICK.register(server -> {
+                if (current != null) {
+                    current.startTick();
+                }
+            });
+            // Registered after the mod's own listener, so the tick's breaking and sync are inside the measurement
+            ServerTickEvents.END_SERVER_TICK.register(server -> {
+                if (current != null) {
+                    current.endTick();
+                }
+            });
+        }
+        current = new Run(context, Settings.fromSystemProperties());
+        current.setUp();
+    }
+
+    private record Settings(int players, int activations, long seed, String[] patterns, int level,
+                            int size, int baselineTicks, Path report) {
+        static Settings fromSystemProperties() {
+            String patterns = System.getProperty(PREFIX + "patterns", String.join(",", ALL_PATTERNS));
+            return new Settings(
+                Integer.getInteger(PREFIX + "players", 4),
+                Integer.getInteger(PREFIX + "activations", 24),
+                Long.getLong(PREFIX + "seed", 1234L),
+                Arrays.stream(patterns.split(",")).map(String::trim).filter(p -> !p.isEmpty()).toArray(String[]::new),
+                Integer.getInteger(PREFIX + "level", 0),
+                Math.max(16, Integer.getInteger(PREFIX + "size", 32)),
+                Integer.getInteger(PREFIX + "baselineTicks", 100),
+                Path.of(System.getProperty(PREFIX + "report", "area-mine-harness.json")));
+        }
+    }
+
+    private enum Phase { BASELINE, MINING, SETTLE }
+
+    private static final class Run {
+        private final TestContext context;
+        private final ServerWorld world;
+        private final Settings settings;
+        private final List<Bot> bots = new ArrayList<>();
+        private final com.sun.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean()
+            instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported() ? bean : null;
+        private int level;
+
+        private Phase phase = Phase.BASELINE;
+        private int phaseTicks = 0;
+        private long tickStartNanos;
+        private long tickStartAllocated;
+        private final LongArrayList baselineNanos = new LongArrayList();
+        private final LongArrayList miningNanos = new LongArrayList();
+        private long baselineAllocated = 0;
+        private long miningAllocated = 0;
+        private long startBlocks;
+        private long startPackets;
+        private int attempts = 0;
+
+        Run(TestContext context, Settings settings) {
+            this.context = context;
+            this.world = context.getWorld();
+            this.settings = settings;
+        }
+
+        void setUp() {
+            AreaEnchantMod.Config config = AreaEnchantMod.config;
+            // Every attempt should activate: no crouch, no cooldown
+            config.requireCrouch = false;
+            config.cooldownTicks = 0;
+            config.simpleMode = false;
+            config.collectMiningMetrics = true;
+            level = settings.level > 0 ? settings.level
+                : config.levels.keySet().stream().mapToInt(Integer::intValue).max().orElse(1);
+            if (threads != null) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+
+            RegistryEntry<Enchantment> areaMine = world.getRegistryManager()
+                .getOrThrow(RegistryKeys.ENCHANTMENT).getOrThrow(AreaEnchantMod.AREA_MINE);
+            int spacing = settings.size + 8;
+            for (int i = 0; i < settings.players; i++) {
+                BlockPos origin = context.getAbsolutePos(new BlockPos(2 + i * spacing, 1, 2));
+                generate(origin, new Random(settings.seed + i));
+
+                UUID playerId = new UUID(settings.seed, i);
+                FakePlayer player = FakePlayer.get(world, new GameProfile(playerId, "AreaMineBot" + i));
+                ItemStack tool = new ItemStack(Items.NETHERITE_PICKAXE);
+                tool.addEnchantment(areaMine, level);
+                player.setStackInHand(Hand.MAIN_HAND, tool);
+                PlayerDataManager.PlayerData data = PlayerDataManager.get(playerId);
+                for (String pattern : settings.patterns) {
+                    data.unlockPattern(pattern);
+                }
+                bots.add(new Bot(world, player, tool, origin, i, settings.activations));
+            }
+            AreaMineLog.info("HARNESS", () -> "Running " + settings.players + " players x " + settings.activations +
+                " activations, patterns " + String.join(",", settings.patterns) + ", level " + level + ", seed " + settings.seed);
+        }
+
+        // Underground mix of StubWorld in the benchmarks, minus the water, plus a few ore veins
+        private void generate(BlockPos origin, Random random) {
+            int size = settings.size;
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            for (int y = 0; y < size; y++) {
+                for (int z = 0; z < size; z++) {
+                    for (int x = 0; x < size; x++) {
+                        set(pos.set(origin, x, y, z), randomUndergroundBlock(random));
+                    }
+                }
+            }
+            BlockState[] ores = {Blocks.IRON_ORE.getDefaultState(), Blocks.COAL_ORE.getDefaultState(),
+                Blocks.DEEPSLATE_DIAMOND_ORE.getDefaultState()};
+            Direction[] directions = Direction.values();
+            for (int vein = 0; vein < size / 4; vein++) {
+                BlockState ore = ores[random.nextInt(ores.length)];
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                int z = random.nextInt(size);
+                for (int n = 0; n < 12; n++) {
+                    set(pos.set(origin, x, y, z), ore);
+                    Direction direction = directions[random.nextInt(directions.length)];
+                    x = Math.clamp(x + direction.getOffsetX(), 0, size - 1);
+                    y = Math.clamp(y + direction.getOffsetY(), 0, size - 1);
+                    z = Math.clamp(z + direction.getOffsetZ(), 0, size - 1);
+                }
+            }
+        }
+
+        private void set(BlockPos pos, BlockState state) {
+            world.setBlockState(pos, state, Block.NOTIFY_LISTENERS | Block.FORCE_STATE);
+        }
+
+        private static BlockState randomUndergroundBlock(Random random) {
+            int roll = random.nextInt(100);
+            Block block;
+            if (roll < 53) block = Blocks.STONE;
+            else if (roll < 65) block = Blocks.DEEPSLATE;
+            else if (roll < 71) block = Blocks.ANDESITE;
+            else if (roll < 76) block = Blocks.DIORITE;
+            else if (roll < 81) block = Blocks.GRANITE;
+            else if (roll < 85) block = Blocks.TUFF;
+            else if (roll < 90) block = Blocks.DIRT;
+            else if (roll < 94) block = Blocks.GRAVEL;
+            else if (roll < 96) block = Blocks.COAL_ORE;
+            else if (roll < 97) block = Blocks.IRON_ORE;
+            else if (roll < 98) block = Blocks.COPPER_ORE;
+            else block = Blocks.CAVE_AIR;
+            return block.getDefaultState();
+        }
+
+        void startTick() {
+            // Taken first - the activations below (the break, AreaMineHandler, and with batchedBreaking
+            // off every block) run right here and belong to the tick's cost
+            tickStartAllocated = allocatedBytes();
+            tickStartNanos = System.nanoTime();
+            if (phase == Phase.MINING) {
+                for (Bot bot : bots) {
+                    if (bot.tryActivate(settings)) {
+                        attempts++;
+                    }
+                }
+            }
+        }
+
+        void endTick() {
+            long nanos = System.nanoTime() - tickStartNanos;
+            long allocated = allocatedBytes() - tickStartAllocated;
+            phaseTicks++;
+            switch (phase) {
+                case BASELINE -> {
+                    baselineNanos.add(nanos);
+                    baselineAllocated += allocated;
+                    if (phaseTicks >= settings.baselineTicks) {
+                        MiningMetrics.reset();
+                        startBlocks = MiningMetrics.getTotalBlocksBroken();
+                        startPackets = BlockPacketCounter.get();
+                        enter(Phase.MINING);
+                    }
+                }
+                case MINING -> {
+                    miningNanos.add(nanos);
+                    miningAllocated += allocated;
+                    if (bots.stream().allMatch(Bot::isDone) && BatchedBlockBreaker.getActiveTaskCount() == 0) {
+                        enter(Phase.SETTLE);
+                    }
+                }
+                case SETTLE -> {
+                    miningNanos.add(nanos);
+                    miningAllocated += allocated;
+                    if (phaseTicks >= SETTLE_TICKS) {
+                        current = null;
+                        writeReport();
+                        context.complete();
+                    }
+                }
+            }
+        }
+
+        private void enter(Phase next) {
+            phase = next;
+            phaseTicks = 0;
+        }
+
+        private long allocatedBytes() {
+            return threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+        }
+
+        private void writeReport() {
+            AreaEnchantMod.Config config = AreaEnchantMod.config;
+            long blocks = MiningMetrics.getTotalBlocksBroken() - startBlocks;
+            long packets = BlockPacketCounter.get() - startPackets;
+            long activations = MiningMetrics.summary(MiningMetrics.Stage.ACTIVATION).count();
+            int ticks = miningNanos.size();
+            long busyNanos = sum(miningNanos);
+
+            JsonObject report = new JsonObject();
+            report.addProperty("harnessVersion", 1);
+            report.addProperty("modVersion", FabricLoader.getInstance().getModContainer("area_enchant")
+                .map(mod -> mod.getMetadata().getVersion().getFriendlyString()).orElse("unknown"));
+            report.addProperty("javaVersion", Runtime.version().toString());
+            report.addProperty("timestamp", System.currentTimeMillis());
+
+            JsonObject run = new JsonObject();
+            run.addProperty("seed", settings.seed);
+            run.addProperty("players", settings.players);
+            run.addProperty("activationsPerPlayer", settings.activations);
+            JsonArray patterns = new JsonArray();
+            for (String pattern : settings.patterns) {
+                patterns.add(pattern);
+            }
+            run.add("patterns", patterns);
+            run.addProperty("level", level);
+            run.addProperty("blockSize", settings.size);
+            run.addProperty("batchedBreaking", config.batchedBreaking);
+            run.addProperty("blocksPerTick", config.blocksPerTick);
+            run.addProperty("tickBudgetMicros", config.tickBudgetMicros);
+            run.addProperty("asyncPlanning", config.asyncPlanning);
+            run.addProperty("asyncPlanningMinBlocks", config.asyncPlanningMinBlocks);
+            run.addProperty("deferNeighborUpdates", config.deferNeighborUpdates);
+            run.addProperty("aggregateDrops", config.aggregateDrops);
+            report.add("settings", run);
+
+            JsonObject baseline = tickStats(baselineNanos);
+            baseline.addProperty("allocatedBytesPerTick", baselineNanos.isEmpty() ? 0 : baselineAllocated / baselineNanos.size());
+            report.add("baseline", baseline);
+
+            JsonObject mining = tickStats(miningNanos);
+            mining.addProperty("attempts", attempts);
+            mining.addProperty("activations", activations);
+            mining.addProperty("blocksBroken", blocks);
+            // At 20 TPS - what players see, capped by blocksPerTick and the tick budget
+            mining.addProperty("blocksPerSecond", ticks > 0 ? blocks * 20.0 / ticks : 0);
+            // Per second of server thread time - the raw throughput
+            mining.addProperty("blocksPerBusySecond", busyNanos > 0 ? blocks * 1e9 / busyNanos : 0);
+            mining.addProperty("allocatedBytes", miningAllocated);
+            // What the ticks allocated beyond an idle tick, spread over the activations
+            long extraAllocated = miningAllocated - (baselineNanos.isEmpty() ? 0 : baselineAllocated * ticks / baselineNanos.size());
+            mining.addProperty("allocatedBytesPerActivation", activations > 0 ? Math.max(0, extraAllocated) / activations : 0);
+            mining.addProperty("blockPacketsPerViewer", packets);
+            mining.addProperty("blockPacketsPerActivation", activations > 0 ? (double) packets / activations : 0);
+            report.add("mining", mining);
+
+            JsonObject stages = new JsonObject();
+            for (MiningMetrics.Stage stage : MiningMetrics.Stage.values()) {
+                MiningMetrics.Summary summary = MiningMetrics.summary(stage);
+                if (summary.count() == 0) {
+                    continue;
+                }
+                JsonObject entry = new JsonObject();
+                entry.addProperty("count", summary.count());
+                entry.addProperty("blocks", summary.blocks());
+                entry.addProperty("p50Nanos", summary.p50Nanos());
+                entry.addProperty("p99Nanos", summary.p99Nanos());
+                entry.addProperty("maxNanos", summary.maxNanos());
+                stages.add(stage.name().toLowerCase(), entry);
+            }
+            report.add("stages", stages);
+
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            Path file = settings.report.toAbsolutePath();
+            try {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                Files.writeString(file, gson.toJson(report));
+                AreaMineLog.info("HARNESS", () -> "Mined " + blocks + " blocks in " + activations + " activations over " + ticks +
+                    " ticks, mean " + String.format("%.2f", mining.get("msptMean").getAsDouble()) + " mspt - report: " + file);
+            } catch (IOException e) {
+                AreaMineLog.error("HARNESS", "Failed to write " + file, e);
+            }
+            if (activations == 0) {
+                AreaMineLog.warn("HARNESS", "No activation got through - check the enchantment and the config");
+            }
+        }
+
+        private static JsonObject tickStats(LongArrayList nanos) {
+            JsonObject stats = new JsonObject();
+            stats.addProperty("ticks", nanos.size());
+            if (nanos.isEmpty()) {
+                return stats;
+            }
+            long[] sorted = nanos.toLongArray();
+            Arrays.sort(sorted);
+            stats.addProperty("msptMean", sum(nanos) / 1e6 / sorted.length);
+            stats.addProperty("msptP50", percentile(sorted, 0.50) / 1e6);
+            stats.addProperty("msptP99", percentile(sorted, 0.99) / 1e6);
+            stats.addProperty("msptMax", sorted[sorted.length - 1] / 1e6);
+            return stats;
+        }
+
+        private static long percentile(long[] sorted, double fraction) {
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        private static long sum(LongArrayList values) {
+            long total = 0;
+            for (int i = 0; i < values.size(); i++) {
+                total += values.getLong(i);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * One fake player, mining eastwards along lanes through their block: a lane is a row at a fixed
+     * height and z, and each activation targets the first solid block left in it.
+     */
+    private static final class Bot {
+        private final ServerWorld world;
+        private final FakePlayer player;
+        private final ItemStack tool;
+        private final BlockPos origin;
+        private final List<BlockPos> lanes = new ArrayList<>();
+        private final int activations;
+        private int lane = 0;
+        private int laneX = 0;
+        private int done = 0;
+        private int patternIndex;
+        private boolean exhausted = false;
+
+        Bot(ServerWorld world, FakePlayer player, ItemStack tool, BlockPos origin, int index, int activations) {
+            this.world = world;
+            this.player = player;
+            this.tool = tool;
+            this.origin = origin;
+            this.patternIndex = index; // Players start on different patterns
+            this.activations = activations;
+        }
+
+        /** Start the next activation if the previous one is over. @return true if a block was broken */
+        boolean tryActivate(Settings settings) {
+            if (exhausted || done >= activations || AreaMineHandler.isBreakingArea(player.getUuid())) {
+                return false;
+            }
+            if (lanes.isEmpty()) {
+                // Rows 6 apart, clear of the block's edges
+                for (int y = 3; y < settings.size - 2; y += 6) {
+                    for (int z = 3; z < settings.size - 2; z += 6) {
+                        lanes.add(origin.add(0, y, z));
+                    }
+                }
+            }
+            BlockPos target = nextTarget(settings.size);
+            if (target == null) {
+                exhausted = true;
+                return false;
+            }
+
+            AreaEnchantMod.config.miningPattern = settings.patterns[patternIndex++ % settings.patterns.length];
+            tool.setDamage(0); // The run measures mining, not tool breaking
+            // Standing west of the target, looking east at it
+            player.refreshPositionAndAngles(target.getX() - 0.5, target.getY() - 1, target.getZ() + 0.5, -90.0f, 0.0f);
+            player.interactionManager.tryBreakBlock(target);
+            done++;
+            return true;
+        }
+
+        boolean isDone() {
+            return (exhausted || done >= activations) && !AreaMineHandler.isBreakingArea(player.getUuid());
+        }
+
+        private BlockPos nextTarget(int size) {
+            while (lane < lanes.size()) {
+                BlockPos start = lanes.get(lane);
+                while (laneX < size) {
+                    BlockPos pos = start.add(laneX, 0, 0);
+                    if (!world.getBlockState(pos).isAir()) {
+                        return pos;
+                    }
+                    laneX++;
+                }
+                lane++;
+                laneX = 0;
+            }
+            return null;
+        }
+    }
+}
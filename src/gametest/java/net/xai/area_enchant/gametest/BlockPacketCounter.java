@@ -0,0 +1,24 @@
+package net.xai.area_enchant.gametest;
+
+/**
+ * Block update packets the server produced, counted where vanilla builds them (ChunkHolderMixin):
+ * every chunk section with changed blocks becomes one packet per watching player when the chunk
+ * holder flushes - a block update for one block, a chunk delta for several. Counted whether or not
+ * anyone watches, so a headless run sees what each player in range would receive.
+ *
+ * Server thread only.
+ */
+public final class BlockPacketCounter {
+    private static long packets = 0;
+
+    private BlockPacketCounter() {
+    }
+
+    public static void add(int count) {
+        packets += count;
+    }
+
+    public static long get() {
+        return packets;
+    }
+}
@@ -0,0 +1,29 @@
+package net.xai.area_enchant.gametest.mixin;
+
+import it.unimi.dsi.fastutil.shorts.ShortSet;
+import net.minecraft.server.world.ChunkHolder;
+import net.minecraft.world.chunk.WorldChunk;
+import net.xai.area_enchant.gametest.BlockPacketCounter;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ChunkHolder.class)
+public abstract class ChunkHolderMixin {
+    @Shadow @Final private ShortSet[] blockUpdatesBySection;
+
+    // Each section with pending changes is sent as one packet per watching player by this flush
+    @Inject(method = "flushUpdates", at = @At("HEAD"))
+    private void countBlockPackets(WorldChunk chunk, CallbackInfo ci) {
+        int sections = 0;
+        for (ShortSet changed : blockUpdatesBySection) {
+            if (changed != null) {
+                sections++;
+            }
+        }
+        BlockPacketCounter.add(sections);
+    }
+}
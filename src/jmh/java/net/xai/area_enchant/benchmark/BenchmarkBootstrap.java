@@ -0,0 +1,79 @@
+package net.xai.area_enchant.benchmark;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.xai.area_enchant.AreaEnchantMod;
+import net.xai.area_enchant.BlockClassifier;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vanilla registries and a default config without a server, so the benchmarks run in a plain JVM.
+ *
+ * Tags aren't bound outside a running server, so the tag-driven default classification would match
+ * nothing and every filter preset would reject everything. The table is built from the same traits
+ * written out as block ids and wildcards instead; lookups go through the same precomputed table
+ * either way, which is what the filter benchmarks measure.
+ */
+final class BenchmarkBootstrap {
+    private static boolean initialized = false;
+
+    private BenchmarkBootstrap() {
+    }
+
+    static synchronized void init() {
+        if (initialized) {
+            return;
+        }
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        AreaEnchantMod.Config config = new AreaEnchantMod.Config();
+        config.blockClassification = getUntaggedClassification();
+        AreaEnchantMod.config = config;
+        BlockClassifier.rebuild(config);
+        initialized = true;
+    }
+
+    /** BlockClassifier.getDefaultClassification() for vanilla blocks, without tags. */
+    private static Map<String, List<String>> getUntaggedClassification() {
+        List<String> stones = List.of(
+            "minecraft:stone", "minecraft:deepslate", "minecraft:andesite", "minecraft:diorite",
+            "minecraft:granite", "minecraft:tuff", "minecraft:cobblestone", "minecraft:cobbled_deepslate",
+            "minecraft:netherrack", "minecraft:basalt", "minecraft:blackstone", "minecraft:end_stone");
+        List<String> ores = List.of("*_ore", "minecraft:ancient_debris");
+        List<String> rawBlocks = List.of("minecraft:raw_iron_block", "minecraft:raw_gold_block",
+            "minecraft:raw_copper_block");
+
+        Map<String, List<String>> classification = new LinkedHashMap<>();
+        List<String> ore = new ArrayList<>(ores);
+        ore.addAll(rawBlocks);
+        ore.add("minecraft:glowstone");
+        classification.put("ore", ore);
+        classification.put("vein_ore", new ArrayList<>(List.of("*_ore")));
+        classification.put("stone", new ArrayList<>(stones));
+        classification.put("dirt_gravel", new ArrayList<>(List.of(
+            "minecraft:dirt", "minecraft:coarse_dirt", "minecraft:rooted_dirt", "minecraft:grass_block",
+            "minecraft:sand", "minecraft:red_sand", "minecraft:gravel")));
+        List<String> valuable = new ArrayList<>(ores);
+        valuable.addAll(rawBlocks);
+        valuable.addAll(List.of("minecraft:iron_block", "minecraft:gold_block", "minecraft:diamond_block",
+            "minecraft:emerald_block", "minecraft:netherite_block", "minecraft:coal_block",
+            "minecraft:redstone_block", "minecraft:lapis_block", "minecraft:copper_block",
+            "minecraft:quartz_block"));
+        classification.put("valuable", valuable);
+        List<String> pickaxeEffective = new ArrayList<>(stones);
+        pickaxeEffective.addAll(ores);
+        pickaxeEffective.addAll(List.of("minecraft:obsidian", "minecraft:calcite", "minecraft:dripstone_block",
+            "minecraft:gravel", "minecraft:glowstone"));
+        classification.put("pickaxe_effective", pickaxeEffective);
+        List<String> commonMining = new ArrayList<>(stones);
+        commonMining.addAll(List.of("*stone*", "*deepslate*", "*netherrack*", "*basalt*", "*obsidian*"));
+        classification.put("common_mining", commonMining);
+        classification.put("unbreakable", new ArrayList<>(List.of("minecraft:bedrock")));
+        return classification;
+    }
+}
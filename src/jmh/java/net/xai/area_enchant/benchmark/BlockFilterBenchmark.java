@@ -0,0 +1,70 @@
+package net.xai.area_enchant.benchmark;
+
+import net.minecraft.block.BlockState;
+import net.xai.area_enchant.AreaEnchantMod;
+import net.xai.area_enchant.BlockFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BlockFilter.shouldMineBlock over a realistic underground block mix (see StubWorld), per filter preset.
+ * Reported per block.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockFilterBenchmark {
+    private static final int BLOCKS = 4096;
+
+    @Param({"none", "oresOnly", "stoneOnly", "ignoreDirtGravel", "pickaxeEffectiveOnly"})
+    public String filter;
+
+    private final BlockState[] states = new BlockState[BLOCKS];
+    private AreaEnchantMod.Config config;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+        Random random = new Random(42);
+        for (int i = 0; i < BLOCKS; i++) {
+            states[i] = StubWorld.randomUndergroundBlock(random);
+        }
+        config = new AreaEnchantMod.Config();
+        config.pickaxeEffectiveOnly = false; // On by default - only the pickaxeEffectiveOnly preset keeps it
+        switch (filter) {
+            case "oresOnly" -> config.filterOresOnly = true;
+            case "stoneOnly" -> config.filterStoneOnly = true;
+            case "ignoreDirtGravel" -> config.filterIgnoreDirtGravel = true;
+            case "pickaxeEffectiveOnly" -> config.pickaxeEffectiveOnly = true;
+            default -> { }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS)
+    public int shouldMineBlock() {
+        int mined = 0;
+        for (BlockState state : states) {
+            if (BlockFilter.shouldMineBlock(state, config)) {
+                mined++;
+            }
+        }
+        return mined;
+    }
+}
@@ -0,0 +1,76 @@
+package net.xai.area_enchant.benchmark;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.xai.area_enchant.MiningPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pattern generation for every pattern at every size up to the largest level + radius boost.
+ *
+ * getBlocksToMine builds a BlockPos list from the cached template (what the client preview does);
+ * templateWalk iterates the template in place (what activations do); generateUncached builds the
+ * pattern from scratch, the cost of a template cache miss.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MiningPatternBenchmark {
+    @Param({"cube", "sphere", "tunnel", "cross", "layer", "vertical"})
+    public String pattern;
+
+    @Param({"1", "2", "3", "5", "7"})
+    public int size;
+
+    private final BlockPos center = new BlockPos(120, 32, -340);
+    private final BlockPos.Mutable cursor = new BlockPos.Mutable();
+    private MiningPattern.Template template;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+        template = MiningPattern.getTemplate(pattern, Direction.NORTH, size, size, size);
+    }
+
+    @Benchmark
+    public List<BlockPos> getBlocksToMine() {
+        return MiningPattern.getBlocksToMine(pattern, center, Direction.NORTH, size, size, size);
+    }
+
+    @Benchmark
+    public long templateWalk() {
+        long hash = 0;
+        for (int i = 0; i < template.size(); i++) {
+            hash += template.getPos(i, center, cursor).asLong();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public List<BlockPos> generateUncached() {
+        return switch (pattern) {
+            case "sphere" -> MiningPattern.getSpherePattern(center, size);
+            case "tunnel" -> MiningPattern.getTunnelPattern(center, Direction.NORTH, size, size, size);
+            case "cross" -> MiningPattern.getCrossPattern(center, Direction.NORTH, size, size, size);
+            case "layer" -> MiningPattern.getLayerPattern(center, size, size);
+            case "vertical" -> MiningPattern.getVerticalPattern(center, size, size);
+            default -> MiningPattern.getCubePattern(center, Direction.NORTH, size, size, size);
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package net.xai.area_enchant.benchmark;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.xai.area_enchant.OreFloodFill;
+import net.xai.area_enchant.PositionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The connected-ore search used for ore undo (findConnectedOres before it became OreFloodFill),
+ * over a synthetic diamond cluster grown in a 64^3 underground mix. The node limit is the cluster
+ * size, so the whole cluster is walked.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OreFloodFillBenchmark {
+    private static final int WORLD_SIZE = 64;
+
+    @Param({"8", "64", "512", "4096"})
+    public int clusterSize;
+
+    @Param({"false", "true"})
+    public boolean diagonal;
+
+    private StubWorld world;
+    private final BlockPos start = new BlockPos(WORLD_SIZE / 2, WORLD_SIZE / 2, WORLD_SIZE / 2);
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+        world = StubWorld.underground(WORLD_SIZE, 7);
+        world.placeCluster(Blocks.DIAMOND_ORE.getDefaultState(), start.getX(), start.getY(), start.getZ(),
+            clusterSize, new Random(clusterSize));
+    }
+
+    @Benchmark
+    public int fill() {
+        LongOpenHashSet connected = OreFloodFill.fill(world, start, Blocks.DIAMOND_ORE, clusterSize, WORLD_SIZE / 2, diagonal);
+        int found = connected.size();
+        PositionPool.release(connected);
+        return found;
+    }
+}
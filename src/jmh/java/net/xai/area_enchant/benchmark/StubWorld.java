@@ -0,0 +1,111 @@
+package net.xai.area_enchant.benchmark;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.Direction;
+import net.xai.area_enchant.BlockStateLookup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A box of block states in memory, standing in for a world.
+ * Covers [0, size) on every axis; everything outside is air. Filled from a fixed seed, so every
+ * run sees the same blocks.
+ */
+final class StubWorld implements BlockStateLookup {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final BlockState[] states;
+
+    StubWorld(int sizeX, int sizeY, int sizeZ) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.states = new BlockState[sizeX * sizeY * sizeZ];
+        Arrays.fill(states, AIR);
+    }
+
+    /** Cube of side size filled with {@link #randomUndergroundBlock}. */
+    static StubWorld underground(int size, long seed) {
+        StubWorld world = new StubWorld(size, size, size);
+        Random random = new Random(seed);
+        for (int i = 0; i < world.states.length; i++) {
+            world.states[i] = randomUndergroundBlock(random);
+        }
+        return world;
+    }
+
+    /**
+     * A block from a mix close to what area mining meets below y=64: mostly stone and deepslate,
+     * stone variants, some dirt and gravel, a few ores, caves (air) and water.
+     */
+    static BlockState randomUndergroundBlock(Random random) {
+        int roll = random.nextInt(100);
+        Block block;
+        if (roll < 52) block = Blocks.STONE;
+        else if (roll < 64) block = Blocks.DEEPSLATE;
+        else if (roll < 70) block = Blocks.ANDESITE;
+        else if (roll < 75) block = Blocks.DIORITE;
+        else if (roll < 80) block = Blocks.GRANITE;
+        else if (roll < 84) block = Blocks.TUFF;
+        else if (roll < 89) block = Blocks.DIRT;
+        else if (roll < 93) block = Blocks.GRAVEL;
+        else if (roll < 95) block = Blocks.COAL_ORE;
+        else if (roll < 96) block = Blocks.IRON_ORE;
+        else if (roll < 97) block = Blocks.COPPER_ORE;
+        else if (roll < 99) block = Blocks.CAVE_AIR;
+        else block = Blocks.WATER;
+        return block.getDefaultState();
+    }
+
+    /**
+     * Grow a connected blob of size blocks of state from (x, y, z), one random face neighbour of an
+     * already placed block at a time - roughly the shape of a vanilla ore vein, just larger.
+     */
+    void placeCluster(BlockState state, int x, int y, int z, int size, Random random) {
+        List<int[]> placed = new ArrayList<>();
+        set(x, y, z, state);
+        placed.add(new int[] {x, y, z});
+        Direction[] directions = Direction.values();
+        int attempts = 0;
+        while (placed.size() < size && attempts++ < size * 64) {
+            int[] from = placed.get(random.nextInt(placed.size()));
+            Direction direction = directions[random.nextInt(directions.length)];
+            int nx = from[0] + direction.getOffsetX();
+            int ny = from[1] + direction.getOffsetY();
+            int nz = from[2] + direction.getOffsetZ();
+            if (contains(nx, ny, nz) && get(nx, ny, nz) != state) {
+                set(nx, ny, nz, state);
+                placed.add(new int[] {nx, ny, nz});
+            }
+        }
+    }
+
+    void set(int x, int y, int z, BlockState state) {
+        states[index(x, y, z)] = state;
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        return contains(x, y, z) ? states[index(x, y, z)] : AIR;
+    }
+
+    private BlockState get(int x, int y, int z) {
+        return states[index(x, y, z)];
+    }
+
+    private boolean contains(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    private int index(int x, int y, int z) {
+        return (y * sizeZ + z) * sizeX + x;
+    }
+}
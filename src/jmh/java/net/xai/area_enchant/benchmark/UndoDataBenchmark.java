@@ -0,0 +1,92 @@
+package net.xai.area_enchant.benchmark;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.xai.area_enchant.PlayerDataManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UndoData at activation sizes: recording every block, then the per-block lookups the breaker and
+ * /areamine undo make (half of them for positions that were never recorded).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UndoDataBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int blocks;
+
+    private long[] positions;
+    private long[] probes;
+    private BlockState[] states;
+    private PlayerDataManager.UndoData filled;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+        Random random = new Random(blocks);
+        positions = new long[blocks];
+        states = new BlockState[blocks];
+        probes = new long[blocks];
+        // Positions inside an activation-sized box around a far-out center, like real coordinates
+        int extent = (int) Math.ceil(Math.cbrt(blocks)) * 2;
+        for (int i = 0; i < blocks; i++) {
+            positions[i] = BlockPos.asLong(15_000 + random.nextInt(extent), -20 + random.nextInt(extent), -8_000 + random.nextInt(extent));
+            states[i] = StubWorld.randomUndergroundBlock(random);
+            probes[i] = i % 2 == 0
+                ? positions[random.nextInt(blocks)]
+                : BlockPos.asLong(15_000 + extent + random.nextInt(extent), 0, -8_000);
+        }
+        filled = new PlayerDataManager.UndoData();
+        for (int i = 0; i < blocks; i++) {
+            filled.addBlock(positions[i], states[i]);
+        }
+    }
+
+    @Benchmark
+    public PlayerDataManager.UndoData add() {
+        PlayerDataManager.UndoData undoData = new PlayerDataManager.UndoData();
+        for (int i = 0; i < blocks; i++) {
+            undoData.addBlock(positions[i], states[i]);
+        }
+        return undoData;
+    }
+
+    @Benchmark
+    public int contains() {
+        int found = 0;
+        for (long probe : probes) {
+            if (filled.containsBlock(probe)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int getState() {
+        int found = 0;
+        for (long probe : probes) {
+            if (filled.getState(probe) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -1,10 +1,13 @@
 package net.xai.area_enchant;
 
 import net.minecraft.block.Block;
-import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Identifier;
 
 public class AdvancementTracker {
+    private static final TagKey<Block> DIAMOND_ORES = TagKey.of(RegistryKeys.BLOCK, Identifier.of("c", "ores/diamond"));
     
     public static void onFirstUse(ServerPlayerEntity player) {
         // Advancement system placeholder
@@ -19,21 +22,21 @@ public class AdvancementTracker {
         if (data.getBlocksMined() >= 10000 && !data.hasEarnedEfficiencyExpert()) {
             data.setEarnedEfficiencyExpert(true);
             player.sendMessage(net.minecraft.text.Text.literal("§6§lAdvancement Made! §r§aEfficiency Expert - Mine 10,000 blocks with Area Mine"));
-            PlayerDataManager.saveToDisk(player.getUuid(), data);
+            PlayerDataManager.save(player.getUuid(), data);
         }
         
         // Check for "Unstoppable" - 100,000 blocks
         if (data.getBlocksMined() >= 100000 && !data.hasEarnedUnstoppable()) {
             data.setEarnedUnstoppable(true);
             player.sendMessage(net.minecraft.text.Text.literal("§6§lChallenge Complete! §r§6Unstoppable - Mine 100,000 blocks with Area Mine"));
-            PlayerDataManager.saveToDisk(player.getUuid(), data);
+            PlayerDataManager.save(player.getUuid(), data);
         }
         
         // Check for "Excavator" - 1,000 blocks in one session
         if (data.getSessionBlocksMined() >= 1000 && !data.hasEarnedExcavator()) {
             data.setEarnedExcavator(true);
             player.sendMessage(net.minecraft.text.Text.literal("§6§lChallenge Complete! §r§eExcavator - Mine 1,000 blocks in one session"));
-            PlayerDataManager.saveToDisk(player.getUuid(), data);
+            PlayerDataManager.save(player.getUuid(), data);
         }
     }
     
@@ -44,7 +47,7 @@ public class AdvancementTracker {
         if (data.getMiningTokens() >= 1000000 && !data.hasEarnedTokenMillionaire()) {
             data.setEarnedTokenMillionaire(true);
             player.sendMessage(net.minecraft.text.Text.literal("§6§lChallenge Complete! §r§eToken Millionaire - Earn 1,000,000 mining tokens"));
-            PlayerDataManager.saveToDisk(player.getUuid(), data);
+            PlayerDataManager.save(player.getUuid(), data);
         }
     }
     
@@ -55,14 +58,13 @@ public class AdvancementTracker {
         if (data.getUnlockedUpgrades().size() >= 4 && !data.hasEarnedMasterMiner()) {
             data.setEarnedMasterMiner(true);
             player.sendMessage(net.minecraft.text.Text.literal("§6§lChallenge Complete! §r§dMaster Miner - Unlock all 4 upgrades"));
-            PlayerDataManager.saveToDisk(player.getUuid(), data);
+            PlayerDataManager.save(player.getUuid(), data);
         }
     }
     
     public static void onDiamondMined(ServerPlayerEntity player, Block block) {
-        // Check if it's a diamond ore
-        String blockId = Registries.BLOCK.getId(block).toString();
-        if (blockId.contains("diamond_ore")) {
+        // Check if it's a diamond ore (tag check - covers deepslate and modded variants)
+        if (block.getRegistryEntry().isIn(DIAMOND_ORES)) {
             PlayerDataManager.PlayerData data = PlayerDataManager.get(player.getUuid());
             data.addDiamondsMined(1);
             
@@ -71,7 +73,7 @@ public class AdvancementTracker {
                 data.setEarnedDiamondDigger(true);
                 player.sendMessage(net.minecraft.text.Text.literal("§6§lChallenge Complete! §r§aDiamond Digger - Mine 100 diamonds with Area Mine"));
                 // Save advancement progress
-                PlayerDataManager.saveToDisk(player.getUuid(), data);
+                PlayerDataManager.save(player.getUuid(), data);
             }
         }
     }
@@ -9,13 +9,15 @@ public class AreaEnchantClientMod implements ClientModInitializer {
     public void onInitializeClient() {
         System.out.println("[Area Mine] Client-side mod initialized");
         
-        // Register client tick event for particle preview
+        // Register client tick event for the preview selection
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
             if (client.player != null && client.world != null) {
-                // Show preview particles when looking at blocks while crouching
-                MinecraftPreview.showPreviewParticles(client);
+                // Work out the blocks to outline when looking at blocks while crouching
+                MinecraftPreview.updatePreview(client);
             }
         });
+        // Draws the outline of that selection every frame
+        PreviewRenderer.register();
         
         net.xai.area_enchant.network.NetworkHandler.registerClientReceiver();
         
@@ -26,7 +28,7 @@ public class AreaEnchantClientMod implements ClientModInitializer {
                 net.xai.area_enchant.client.UpgradesScreen.open(payload.entries()))
         );
         
-        System.out.println("[Area Mine] Particle preview enabled!");
+        System.out.println("[Area Mine] Outline preview enabled!");
         System.out.println("[Area Mine] Client-server pattern sync enabled!");
     }
 }
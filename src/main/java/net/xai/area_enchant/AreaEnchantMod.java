@@ -128,7 +128,7 @@ public class AreaEnchantMod implements ModInitializer {
                     int current = getSimpleModeOreCount(data.getBlockTypeStats(), oreId);
                     if (current < required) return;
                     data.unlockUpgrade(upgradeName);
-                    PlayerDataManager.saveToDisk(player.getUuid(), data);
+                    PlayerDataManager.save(player.getUuid(), data);
                     player.sendMessage(net.minecraft.text.Text.literal("§a[Area Mine] Unlocked: " + upgradeName), false);
                 });
             }
@@ -152,44 +152,85 @@ public class AreaEnchantMod implements ModInitializer {
         // Register event-based area mining handler (replaces mixin approach)
         AreaMineHandler.register();
         
+        // Start loading player data while the client is still in the configuration phase (registry sync,
+        // resource packs) - by the time they join it's usually in memory
+        net.fabricmc.fabric.api.networking.v1.ServerConfigurationConnectionEvents.CONFIGURE.register((handler, server) -> {
+            PlayerDataManager.prefetch(handler.getDebugProfile().id(), server.getTicks());
+        });
+        
         // Reset session blocks on player disconnect and ensure world directory is set on join
         net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
             // CRITICAL: Update world directory when player joins to ensure it's set correctly
             // This is especially important for singleplayer world switching
             updateWorldDirectory(server);
+            // Take over the prefetched data here rather than in the first block break
+            PlayerDataManager.onJoin(handler.player.getUuid());
         });
         
         net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
             UUID playerId = handler.player.getUuid();
             PlayerDataManager.PlayerData data = PlayerDataManager.get(playerId);
             data.resetSessionBlocks();
-            PlayerDataManager.saveToDisk(playerId, data);
+            PlayerDataManager.save(playerId, data);
+            // Stays cached for a while in case they reconnect
+            PlayerDataManager.onDisconnect(playerId, server.getTicks());
             // Clear pending ore breaks to prevent memory leaks
             AreaMineHandler.clearPendingOreBreaks(playerId);
         });
         
-        // Save player data when server stops
         ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            // Plans still being computed belong to this server - drop them
+            AreaMinePlanner.clear();
+        });
+        
+        // Save player data when server stops
+        // CRITICAL: Not in SERVER_STOPPING - players are only disconnected after it, and their
+        // DISCONNECT saves must still reach the open store
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
             System.out.println("[Area Mine] Saving player data...");
             PlayerDataManager.saveAll();
+            PlayerDataManager.closeStore();
+            // Bounded - a stuck disk must not hang the shutdown
+            PlayerDataWriter.flush(10000);
             System.out.println("[Area Mine] Player data saved!");
+            AreaMineLog.flush(1000);
         });
         
         // Server tick event for batched block breaking and pending ore breaks
         net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents.END_SERVER_TICK.register(server -> {
+            // Plans finished off-thread start breaking this tick
+            AreaMinePlanner.drainCompleted();
             if (AreaEnchantMod.config.batchedBreaking) {
                 BatchedBlockBreaker.tick();
             }
             // Process pending ore breaks (oreharvester bypasses AFTER event)
             AreaMineHandler.processPendingOreBreaks();
+            MiningMetrics.endTick();
+            // Periodic save - only players whose data changed are queued, the writing happens off-thread
+            int saveInterval = AreaEnchantMod.config.playerDataSaveIntervalTicks;
+            if (saveInterval > 0 && server.getTicks() % saveInterval == 0) {
+                PlayerDataManager.saveAll();
+            }
+            // Offline players' data leaves the cache once their grace period is over
+            PlayerDataManager.evictIdle(server.getTicks());
+        });
+        
+        // Block tags can change on /reload - recompile the classification table
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resourceManager, success) -> {
+            if (success) {
+                BlockClassifier.rebuild(config);
+            }
         });
         
-        // Periodically save player data (every 5 minutes) and set world save directory
+        // Set world save directory (periodic saves run from the tick handler above)
         ServerLifecycleEvents.SERVER_STARTED.register(server -> {
             // Reload config from server's run directory so singleplayer and multiplayer
             // use the correct config path (fixes /areamine crouch and manual config edits)
             loadConfigFromServer(server);
             
+            // All blocks are registered by now - precompute block classification for filtering
+            BlockClassifier.rebuild(config);
+            
             // CRITICAL: Reset world directory tracking on every server start
             // This ensures we always detect the world correctly, even if the static variable persisted
             PlayerDataManager.resetWorldDirectoryTracking();
@@ -197,24 +238,6 @@ public class AreaEnchantMod implements ModInitializer {
             // Set world-specific save directory for player data
             // CRITICAL: This must run when the server starts to detect the world directory
             updateWorldDirectory(server);
-            
-            
-            server.getWorlds().forEach(world -> {
-                // Schedule periodic saves using server tick scheduler
-                world.getServer().execute(() -> {
-                    new Thread(() -> {
-                        while (server.isRunning()) {
-                            try {
-                                Thread.sleep(300000); // 5 minutes
-                                PlayerDataManager.saveAll();
-                                System.out.println("[Area Mine] Auto-saved player data");
-                            } catch (InterruptedException e) {
-                                break;
-                            }
-                        }
-                    }).start();
-                });
-            });
         });
     }
     
@@ -251,6 +274,13 @@ public class AreaEnchantMod implements ModInitializer {
                 .then(CommandManager.literal("undo")
                     .executes(AreaMineCommand::undo)
                 )
+                .then(CommandManager.literal("perf")
+                    .requires(source -> net.xai.area_enchant.AreaMineCommand.hasPermissionLevel(source, 2))
+                    .executes(AreaMineCommand::perf)
+                    .then(CommandManager.literal("reset")
+                        .executes(AreaMineCommand::perfReset)
+                    )
+                )
                 .then(CommandManager.literal("crouch")
                     .requires(source -> net.xai.area_enchant.AreaMineCommand.hasPermissionLevel(source, 0))
                     .executes(AreaMineCommand::crouchToggle)
@@ -444,6 +474,11 @@ public class AreaEnchantMod implements ModInitializer {
                     migrateConfigTo5(config);
                     config.configVersion = 5;
                 }
+                if (config.configVersion < 6) {
+                    System.out.println("[Area Mine] Migrating config from version " + config.configVersion + " to 6 (tag-based block classification)");
+                    migrateConfigTo6(config);
+                    config.configVersion = 6;
+                }
                 if (fromVersion < config.configVersion) {
                     Files.writeString(configPath, gson.toJson(config));
                     System.out.println("[Area Mine] Config migration complete!");
@@ -482,6 +517,8 @@ public class AreaEnchantMod implements ModInitializer {
                 e.printStackTrace();
             }
         }
+        
+        AreaMineLog.configure(config);
     }
     
     private static void migrateConfig(Config oldConfig) {
@@ -581,6 +618,12 @@ public class AreaEnchantMod implements ModInitializer {
         }
     }
 
+    private static void migrateConfigTo6(Config config) {
+        if (config.blockClassification == null || config.blockClassification.isEmpty()) {
+            config.blockClassification = BlockClassifier.getDefaultClassification();
+        }
+    }
+
     private static void generateConfigGuide(Path configDir) {
         try {
             String guide = """
@@ -624,6 +667,14 @@ public class AreaEnchantMod implements ModInitializer {
                   Default: [] (empty - all blocks allowed)
                   Example: ["minecraft:stone", "minecraft:deepslate"]
                   Note: When whitelist is used, blacklist is ignored
+                  Entries can also be block tags ("#c:ores") or wildcards ("*_ore")
+                
+                blockClassification: What counts as ore, stone, valuable, etc. for the filters
+                  Keys: ore, vein_ore, stone, dirt_gravel, valuable, pickaxe_effective,
+                        liquid, unbreakable, common_mining
+                  Values: block tags ("#minecraft:mineable/pickaxe"), block ids or wildcards
+                  Default: tag based, so modded ores/stones are picked up automatically
+                  Re-applied on /areamine reload and data pack reload
                 
                 --------------------------------------------------------------------------------
                 GAMEPLAY FEATURES (All disabled by default)
@@ -746,6 +797,7 @@ public class AreaEnchantMod implements ModInitializer {
         
         if (!defaultConfig.blockBlacklist.contains("minecraft:lava")) defaultConfig.blockBlacklist.add("minecraft:lava");
         if (!defaultConfig.blockBlacklist.contains("minecraft:water")) defaultConfig.blockBlacklist.add("minecraft:water");
+        defaultConfig.blockClassification = BlockClassifier.getDefaultClassification();
         
         // Feature defaults (keep current behavior)
         defaultConfig.autoPickup = false;
@@ -794,6 +846,21 @@ public class AreaEnchantMod implements ModInitializer {
         // Async/batched breaking for performance
         defaultConfig.batchedBreaking = true;
         defaultConfig.blocksPerTick = 10;
+        defaultConfig.tickBudgetMicros = 5000;
+        defaultConfig.asyncPlanning = true;
+        defaultConfig.asyncPlanningMinBlocks = 64;
+        defaultConfig.deferNeighborUpdates = true;
+        defaultConfig.aggregateDrops = true;
+        defaultConfig.playerDataSaveIntervalTicks = 1200;
+        defaultConfig.playerDataMmapReads = false;
+        defaultConfig.playerDataEvictDelayTicks = 6000;
+        defaultConfig.playerDataCacheSize = 256;
+        defaultConfig.collectMiningMetrics = true;
+        defaultConfig.oreFloodFillMaxBlocks = 256;
+        defaultConfig.oreFloodFillMaxRadius = 16;
+        defaultConfig.oreFloodFillDiagonal = false;
+        defaultConfig.logLevel = "INFO";
+        defaultConfig.logRateLimitPerSecond = 20;
         defaultConfig.enableUndo = true;
         defaultConfig.actionBarFeedback = false; // Disabled - use chat instead
         defaultConfig.sendTokensInChat = true; // Send token rewards as chat message
@@ -884,6 +951,7 @@ public class AreaEnchantMod implements ModInitializer {
         public List<String> allowedTools = new ArrayList<>();
         public List<String> blockBlacklist = new ArrayList<>(Arrays.asList("minecraft:bedrock", "minecraft:lava", "minecraft:water")); // Bedrock and liquids
         public List<String> blockWhitelist = new ArrayList<>();
+        public Map<String, List<String>> blockClassification = new HashMap<>(); // Trait -> block tags ("#c:ores"), ids or wildcards
         
         // Features
         public boolean autoPickup = false;
@@ -898,7 +966,7 @@ public class AreaEnchantMod implements ModInitializer {
         public boolean respectFortuneAndSilkTouch = true;
         public boolean requireCrouch = true; // v4: Only activate while crouching
         public boolean pickaxeEffectiveOnly = true; // v4: Only mine blocks effective with pickaxe
-        public String previewDensity = "medium"; // "full" (4), "medium" (2), "minimal" (1)
+        public String previewDensity = "medium"; // Preview outline width: "low", "medium", "high"
         
         // Block filters
         public boolean filterOresOnly = false;
@@ -934,7 +1002,22 @@ public class AreaEnchantMod implements ModInitializer {
         
         // Async/batched breaking for performance
         public boolean batchedBreaking = true;
-        public int blocksPerTick = 10;
+        public int blocksPerTick = 10; // Upper bound per player per tick
+        public int tickBudgetMicros = 5000; // Time all players' batched breaking may use per tick combined (5ms)
+        public boolean asyncPlanning = true; // Select blocks on a worker thread from a snapshot (needs batchedBreaking)
+        public int asyncPlanningMinBlocks = 64; // Smaller patterns are planned right away on the server thread
+        public boolean deferNeighborUpdates = true; // Send block updates once per batch, only at the edge of the mined area
+        public boolean aggregateDrops = true; // Merge identical drops of an activation and spawn them as full stacks when it ends
+        public int playerDataSaveIntervalTicks = 1200; // How often changed player data is saved in the background (0 = only on disconnect/stop)
+        public boolean playerDataMmapReads = false; // Read the player store through a memory-mapped view (keeps Windows from compacting it)
+        public int playerDataEvictDelayTicks = 6000; // How long a disconnected player's data stays cached in case they rejoin
+        public int playerDataCacheSize = 256; // Max offline players kept in memory (online players are always cached)
+        public boolean collectMiningMetrics = true; // Keep per-stage timing histograms for /areamine perf
+        public int oreFloodFillMaxBlocks = 256; // Connected ores saved for undo when breaking an ore, at most
+        public int oreFloodFillMaxRadius = 16; // How far (per axis) connected ores are searched from the broken one
+        public boolean oreFloodFillDiagonal = false; // Count diagonally touching ores as connected (26 neighbours)
+        public String logLevel = "INFO"; // TRACE, DEBUG, INFO, WARN, ERROR or OFF - DEBUG logs every activation and block break
+        public int logRateLimitPerSecond = 20; // Max log lines per category per second (0 = unlimited, warnings and errors always pass)
         public boolean enableUndo = true;
         public boolean actionBarFeedback = false; // Action bar disabled by default
         public boolean sendTokensInChat = true; // Send token rewards in chat (false = action bar only)
@@ -11,6 +11,7 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
+import net.minecraft.util.math.BlockPos;
 
 import java.util.*;
 
@@ -44,6 +45,8 @@ public class AreaMineCommand {
             } else {
                 AreaEnchantMod.reloadConfig();
             }
+            // Blacklist/whitelist are baked into the classification table
+            BlockClassifier.rebuild(AreaEnchantMod.config);
             source.sendFeedback(() -> Text.literal("§a[Area Mine] Config reloaded successfully!"), true);
             return Command.SINGLE_SUCCESS;
         } catch (Exception e) {
@@ -91,27 +94,31 @@ public class AreaMineCommand {
     public static int statsAll(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
         
-        Map<UUID, PlayerDataManager.PlayerData> allData = PlayerDataManager.getAllData();
+        // Every stored player, not just the ones that happen to be cached
+        final long[] totalBlocks = {0};
+        final long[] totalUses = {0};
+        final int[] players = {0};
+        PlayerDataManager.forEachStored((playerId, data) -> {
+            totalBlocks[0] += data.getBlocksMined();
+            totalUses[0] += data.getTimesUsed();
+            players[0]++;
+        });
         
-        if (allData.isEmpty()) {
+        if (players[0] == 0) {
             source.sendFeedback(() -> Text.literal("§e[Area Mine] No player data recorded yet."), false);
             return 0;
         }
         
         source.sendFeedback(() -> Text.literal("§e[Area Mine] All Player Stats:"), false);
-        
-        final int[] totalBlocks = {0};
-        final int[] totalUses = {0};
-        
-        for (Map.Entry<UUID, PlayerDataManager.PlayerData> entry : allData.entrySet()) {
-            PlayerDataManager.PlayerData data = entry.getValue();
-            totalBlocks[0] += data.getBlocksMined();
-            totalUses[0] += data.getTimesUsed();
-        }
-        
         source.sendFeedback(() -> Text.literal("  §7Total blocks mined: §f" + totalBlocks[0]), false);
         source.sendFeedback(() -> Text.literal("  §7Total uses: §f" + totalUses[0]), false);
-        source.sendFeedback(() -> Text.literal("  §7Players tracked: §f" + allData.size()), false);
+        source.sendFeedback(() -> Text.literal("  §7Players tracked: §f" + players[0]), false);
+        
+        PlayerDataManager.CacheStats cache = PlayerDataManager.getCacheStats();
+        source.sendFeedback(() -> Text.literal(String.format("  §7Data cache: §f%d §7players (§f%d §7online), ~§f%d KB",
+            cache.entries(), cache.online(), cache.heapBytes() / 1024)), false);
+        source.sendFeedback(() -> Text.literal(String.format("  §7Cache hit rate: §f%.1f%% §7(%d hits, %d prefetched, %d misses, %d evicted)",
+            cache.hitRate() * 100, cache.hits(), cache.prefetchHits(), cache.misses(), cache.evictions())), false);
         
         return Command.SINGLE_SUCCESS;
     }
@@ -126,7 +133,7 @@ public class AreaMineCommand {
             // This ensures undo data persists even when PlayerData is reloaded from disk
             PlayerDataManager.UndoData undoData = PlayerDataManager.getUndoData(player.getUuid());
             
-            if (undoData == null || undoData.blocks.isEmpty()) {
+            if (undoData == null || undoData.isEmpty()) {
                 source.sendFeedback(() -> Text.literal("§c[Area Mine] No operation to undo!"), false);
                 return 0;
             }
@@ -139,6 +146,7 @@ public class AreaMineCommand {
             }
             
             net.minecraft.server.world.ServerWorld world = source.getWorld();
+            MiningMetrics.Span undoSpan = MiningMetrics.begin(MiningMetrics.Stage.UNDO);
             
             // Remove item entities that were dropped on the ground
             // CRITICAL: Track how many items of each type we remove as item entities
@@ -163,8 +171,10 @@ public class AreaMineCommand {
             // Also search for item entities near restored block positions (in case items moved or weren't tracked)
             // CRITICAL: Also search for items that match expected drops, even if they were dropped after being picked up
             java.util.Set<net.minecraft.item.Item> expectedDropItems = new java.util.HashSet<>();
-            for (PlayerDataManager.UndoData.BlockStateData blockData : undoData.blocks) {
-                net.minecraft.block.Block block = blockData.state.getBlock();
+            for (int i = 0; i < undoData.size(); i++) {
+                BlockPos blockPos = BlockPos.fromLong(undoData.getPosAt(i));
+                net.minecraft.block.BlockState blockState = undoData.getStateAt(i);
+                net.minecraft.block.Block block = blockState.getBlock();
                 net.minecraft.item.Item blockItem = block.asItem();
                 
                 if (blockItem != null && !blockItem.equals(net.minecraft.item.Items.AIR)) {
@@ -173,8 +183,8 @@ public class AreaMineCommand {
                     // Get actual drops for this block
                     try {
                         List<ItemStack> drops = Block.getDroppedStacks(
-                            blockData.state, world, blockData.pos, 
-                            world.getBlockEntity(blockData.pos), player, player.getMainHandStack()
+                            blockState, world, blockPos, 
+                            world.getBlockEntity(blockPos), player, player.getMainHandStack()
                         );
                         for (ItemStack drop : drops) {
                             expectedDropItems.add(drop.getItem());
@@ -190,13 +200,14 @@ public class AreaMineCommand {
                 // Calculate bounding box for all restored blocks
                 int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
                 int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
-                for (PlayerDataManager.UndoData.BlockStateData blockData : undoData.blocks) {
-                    minX = Math.min(minX, blockData.pos.getX());
-                    minY = Math.min(minY, blockData.pos.getY());
-                    minZ = Math.min(minZ, blockData.pos.getZ());
-                    maxX = Math.max(maxX, blockData.pos.getX());
-                    maxY = Math.max(maxY, blockData.pos.getY());
-                    maxZ = Math.max(maxZ, blockData.pos.getZ());
+                for (int i = 0; i < undoData.size(); i++) {
+                    long packedPos = undoData.getPosAt(i);
+                    minX = Math.min(minX, BlockPos.unpackLongX(packedPos));
+                    minY = Math.min(minY, BlockPos.unpackLongY(packedPos));
+                    minZ = Math.min(minZ, BlockPos.unpackLongZ(packedPos));
+                    maxX = Math.max(maxX, BlockPos.unpackLongX(packedPos));
+                    maxY = Math.max(maxY, BlockPos.unpackLongY(packedPos));
+                    maxZ = Math.max(maxZ, BlockPos.unpackLongZ(packedPos));
                 }
                 
                 // Search within 5 blocks of the bounding box
@@ -322,24 +333,21 @@ public class AreaMineCommand {
             int restored = 0;
             
             // Restore blocks in reverse order (last broken first) to avoid neighbor update issues
-            List<PlayerDataManager.UndoData.BlockStateData> blocksToRestore = 
-                new ArrayList<>(undoData.blocks);
-            java.util.Collections.reverse(blocksToRestore);
-            
-            for (PlayerDataManager.UndoData.BlockStateData blockData : blocksToRestore) {
+            for (int i = undoData.size() - 1; i >= 0; i--) {
+                BlockPos restorePos = BlockPos.fromLong(undoData.getPosAt(i));
+                net.minecraft.block.BlockState restoreState = undoData.getStateAt(i);
                 try {
                     // CRITICAL: For ores and other blocks, we need to properly restore the exact block state
                     // This includes preserving block properties, block entities, and ensuring proper client sync
-                    String targetBlock = net.minecraft.registry.Registries.BLOCK.getId(blockData.state.getBlock()).toString();
+                    net.minecraft.block.Block targetBlock = restoreState.getBlock();
                     
                     // Get current block state to check if we need to restore
-                    net.minecraft.block.BlockState currentState = world.getBlockState(blockData.pos);
-                    String currentBlock = net.minecraft.registry.Registries.BLOCK.getId(currentState.getBlock()).toString();
+                    net.minecraft.block.BlockState currentState = world.getBlockState(restorePos);
                     
                     // If it's already the correct block, check if state matches
-                    if (currentBlock.equals(targetBlock)) {
+                    if (currentState.getBlock() == targetBlock) {
                         // Check if states are equal (including properties)
-                        if (currentState.equals(blockData.state)) {
+                        if (currentState.equals(restoreState)) {
                             // Already correct, skip
                             restored++;
                             continue;
@@ -348,39 +356,36 @@ public class AreaMineCommand {
                     
                     // CRITICAL: For ores in multiplayer, we need to ensure proper client-server synchronization
                     // First, clear the block completely
-                    world.setBlockState(blockData.pos, net.minecraft.block.Blocks.AIR.getDefaultState(), 3);
+                    world.setBlockState(restorePos, net.minecraft.block.Blocks.AIR.getDefaultState(), 3);
                     
                     // CRITICAL: Set the block state with flag 3 (NOTIFY_NEIGHBORS | NOTIFY_LISTENERS)
                     // Flag 3 ensures both server and client are notified, which is critical for multiplayer
                     // For ores, we need to ensure the exact state is restored, including all properties
-                    world.setBlockState(blockData.pos, blockData.state, 3);
+                    world.setBlockState(restorePos, restoreState, 3);
                     
                     // CRITICAL: Force a block update to ensure clients see the change
                     // This is especially important in multiplayer where clients might have stale data
                     // Update neighbors to ensure proper synchronization
                     // Flag 3 in setBlockState already handles client synchronization, but we update neighbors too
-                    world.updateNeighbors(blockData.pos, blockData.state.getBlock());
+                    world.updateNeighbors(restorePos, restoreState.getBlock());
                     
                     // Verify it was actually set
-                    net.minecraft.block.BlockState verifyState = world.getBlockState(blockData.pos);
-                    String verifyBlock = net.minecraft.registry.Registries.BLOCK.getId(verifyState.getBlock()).toString();
+                    net.minecraft.block.BlockState verifyState = world.getBlockState(restorePos);
                     
                     // Check if block type matches (for ores, we need exact match)
-                    boolean isOre = targetBlock.contains("_ore") || 
-                                   (targetBlock.contains("deepslate") && (targetBlock.contains("ore") || targetBlock.contains("_ore")));
-                    if (verifyBlock.equals(targetBlock)) {
+                    if (verifyState.getBlock() == targetBlock) {
                         // For ores and blocks with properties, verify the state matches
                         // Some blocks might have different states but same block type
-                        if (verifyState.equals(blockData.state) || verifyState.getBlock() == blockData.state.getBlock()) {
+                        if (verifyState.equals(restoreState) || verifyState.getBlock() == restoreState.getBlock()) {
                             // Update neighbors to ensure proper block updates
-                            blockData.state.updateNeighbors(world, blockData.pos, 3);
+                            restoreState.updateNeighbors(world, restorePos, 3);
                             restored++;
                         } else {
                             // Block type matches but state differs - try to set exact state
-                            world.setBlockState(blockData.pos, blockData.state, 3);
-                            net.minecraft.block.BlockState finalVerify = world.getBlockState(blockData.pos);
-                            if (finalVerify.getBlock() == blockData.state.getBlock()) {
-                                blockData.state.updateNeighbors(world, blockData.pos, 3);
+                            world.setBlockState(restorePos, restoreState, 3);
+                            net.minecraft.block.BlockState finalVerify = world.getBlockState(restorePos);
+                            if (finalVerify.getBlock() == restoreState.getBlock()) {
+                                restoreState.updateNeighbors(world, restorePos, 3);
                                 restored++;
                             }
                         }
@@ -388,13 +393,12 @@ public class AreaMineCommand {
                         // Try alternative: use breakBlock then setBlockState
                         try {
                             // Break the block first
-                            world.breakBlock(blockData.pos, false);
+                            world.breakBlock(restorePos, false);
                             // Then set the state
-                            world.setBlockState(blockData.pos, blockData.state, 3);
-                            net.minecraft.block.BlockState retryVerify = world.getBlockState(blockData.pos);
-                            String retryBlock = net.minecraft.registry.Registries.BLOCK.getId(retryVerify.getBlock()).toString();
-                            if (retryBlock.equals(targetBlock)) {
-                                blockData.state.updateNeighbors(world, blockData.pos, 3);
+                            world.setBlockState(restorePos, restoreState, 3);
+                            net.minecraft.block.BlockState retryVerify = world.getBlockState(restorePos);
+                            if (retryVerify.getBlock() == targetBlock) {
+                                restoreState.updateNeighbors(world, restorePos, 3);
                                 restored++;
                             }
                         } catch (Exception retryEx) {
@@ -406,6 +410,7 @@ public class AreaMineCommand {
                 }
             }
             
+            undoSpan.end(restored);
             PlayerDataManager.clearUndoData(player.getUuid());
             final int finalRestored = restored;
             final int finalRemovedEntities = removedEntities;
@@ -421,48 +426,90 @@ public class AreaMineCommand {
         }
     }
     
+    public static int perf(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        
+        long minutes = (System.currentTimeMillis() - MiningMetrics.getResetAtMillis()) / 60000;
+        source.sendFeedback(() -> Text.literal("§e[Area Mine] Pipeline timings, last " + minutes + " min (p50 / p99 / max):"), false);
+        if (!AreaEnchantMod.config.collectMiningMetrics) {
+            source.sendFeedback(() -> Text.literal("  §7collectMiningMetrics is off - JFR events only"), false);
+        }
+        
+        boolean any = false;
+        for (MiningMetrics.Stage stage : MiningMetrics.Stage.values()) {
+            MiningMetrics.Summary summary = MiningMetrics.summary(stage);
+            if (summary.count() == 0) {
+                continue;
+            }
+            any = true;
+            source.sendFeedback(() -> Text.literal(String.format("  §7%s: §f%s §7/ §f%s §7/ §f%s §7(%,d runs, %,d blocks)",
+                stage.getLabel(), formatNanos(summary.p50Nanos()), formatNanos(summary.p99Nanos()),
+                formatNanos(summary.maxNanos()), summary.count(), summary.blocks())), false);
+        }
+        if (!any) {
+            source.sendFeedback(() -> Text.literal("  §7Nothing recorded yet."), false);
+        }
+        
+        // Blocks per tick over the ticks that broke any, scaled to blocks per second at 20 TPS
+        MiningMetrics.Summary perTick = MiningMetrics.blocksPerTick();
+        int lastSecond = MiningMetrics.getBlocksLastSecond();
+        source.sendFeedback(() -> Text.literal(String.format("  §7Blocks/s: §f%,d §7last second | per mining tick p50 §f%,d §7(%,d/s) p99 §f%,d §7(%,d/s)",
+            lastSecond, perTick.p50Nanos(), perTick.p50Nanos() * 20, perTick.p99Nanos(), perTick.p99Nanos() * 20)), false);
+        
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    public static int perfReset(CommandContext<ServerCommandSource> context) {
+        MiningMetrics.reset();
+        context.getSource().sendFeedback(() -> Text.literal("§a[Area Mine] Pipeline timings reset."), false);
+        return Command.SINGLE_SUCCESS;
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000_000) {
+            return String.format("%.0fµs", nanos / 1_000.0);
+        }
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+    
     public static int leaderboard(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
         String type = StringArgumentType.getString(context, "type");
         
-        Map<UUID, PlayerDataManager.PlayerData> allData = PlayerDataManager.getAllData();
-        if (allData.isEmpty()) {
-            source.sendFeedback(() -> Text.literal("§e[Area Mine] No player data recorded yet."), false);
+        LeaderboardIndex.Stat stat = LeaderboardIndex.Stat.byName(type);
+        if (stat == null) {
+            source.sendFeedback(() -> Text.literal("§c[Area Mine] Invalid type! Use: blocks, diamonds, or tokens"), false);
             return 0;
         }
         
-        List<Map.Entry<UUID, PlayerDataManager.PlayerData>> sorted = new ArrayList<>(allData.entrySet());
-        
-        switch (type.toLowerCase()) {
-            case "blocks" -> sorted.sort((a, b) -> 
-                Integer.compare(b.getValue().getBlocksMined(), a.getValue().getBlocksMined()));
-            case "diamonds" -> sorted.sort((a, b) -> 
-                Integer.compare(b.getValue().getDiamondsMined(), a.getValue().getDiamondsMined()));
-            case "tokens" -> sorted.sort((a, b) -> 
-                Integer.compare(b.getValue().getMiningTokens(), a.getValue().getMiningTokens()));
-            default -> {
-                source.sendFeedback(() -> Text.literal("§c[Area Mine] Invalid type! Use: blocks, diamonds, or tokens"), false);
-                return 0;
-            }
+        // Indexed over every stored player (offline ones too) - no copying or sorting here
+        List<LeaderboardIndex.Entry> top = LeaderboardIndex.top(stat, 10);
+        if (top.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("§e[Area Mine] No player data recorded yet."), false);
+            return 0;
         }
         
         source.sendFeedback(() -> Text.literal("§e[Area Mine] Leaderboard - " + type.toUpperCase()), false);
         
+        var server = source.getServer();
         int rank = 1;
-        for (int i = 0; i < Math.min(10, sorted.size()); i++) {
-            Map.Entry<UUID, PlayerDataManager.PlayerData> entry = sorted.get(i);
-            PlayerDataManager.PlayerData data = entry.getValue();
-            UUID playerId = entry.getKey();
+        for (LeaderboardIndex.Entry entry : top) {
+            UUID playerId = entry.playerId();
             
             // Get player name from server
             String playerName = playerId.toString();
             try {
-                var server = source.getServer();
                 var playerEntity = server.getPlayerManager().getPlayer(playerId);
                 if (playerEntity != null) {
                     playerName = playerEntity.getName().getString();
+                } else {
+                    // Offline - the server's name cache (usercache.json) knows everyone who joined recently
+                    var cached = server.getApiServices().nameToIdCache().getByUuid(playerId);
+                    if (cached.isPresent()) {
+                        playerName = cached.get().name();
+                    }
                 }
-                // If player is offline, show first 8 chars of UUID
+                // Unknown to the cache too - show first 8 chars of UUID
                 if (playerName.equals(playerId.toString())) {
                     playerName = playerId.toString().substring(0, 8) + "...";
                 }
@@ -471,20 +518,23 @@ public class AreaMineCommand {
                 playerName = playerId.toString().substring(0, 8) + "...";
             }
             
-            int value = switch (type.toLowerCase()) {
-                case "blocks" -> data.getBlocksMined();
-                case "diamonds" -> data.getDiamondsMined();
-                case "tokens" -> data.getMiningTokens();
-                default -> 0;
-            };
-            
             final int finalRank = rank;
-            final int finalValue = value;
+            final int finalValue = entry.value();
             final String finalPlayerName = playerName;
             source.sendFeedback(() -> Text.literal("  §7" + finalRank + ". §f" + finalPlayerName + " §7- §a" + finalValue), false);
             rank++;
         }
         
+        // The caller's own position, if they're a player outside the top 10
+        ServerPlayerEntity self = source.getPlayer();
+        if (self != null) {
+            int myRank = LeaderboardIndex.rank(stat, self.getUuid());
+            if (myRank > top.size()) {
+                int total = LeaderboardIndex.size(stat);
+                source.sendFeedback(() -> Text.literal("  §7Your rank: §f" + myRank + " §7of " + total), false);
+            }
+        }
+        
         return Command.SINGLE_SUCCESS;
     }
     
@@ -894,7 +944,7 @@ public class AreaMineCommand {
             }
             
             data.unlockPattern(pattern);
-            PlayerDataManager.saveToDisk(player.getUuid(), data);
+            PlayerDataManager.save(player.getUuid(), data);
             
             String description = switch (pattern) {
                 case "sphere" -> "Spherical radius mining";
@@ -1,5 +1,8 @@
 package net.xai.area_enchant;
 
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -90,13 +93,8 @@ public class AreaMineHandler {
             
             // Prevent breaking bedrock/unbreakable blocks with area mine
             if (player instanceof ServerPlayerEntity serverPlayer && world instanceof ServerWorld serverWorld) {
-                String blockId = Registries.BLOCK.getId(state.getBlock()).toString();
-                float hardness = state.getHardness(serverWorld, pos);
-                
-                // Check for bedrock or unbreakable blocks
-                boolean isUnbreakable = hardness < 0 || 
-                    blockId.equals("minecraft:bedrock") ||
-                    AreaEnchantMod.config.blockBlacklist.contains(blockId);
+                // Check for bedrock or unbreakable blocks (negative hardness, bedrock, blacklist)
+                boolean isUnbreakable = BlockClassifier.isProtected(state);
                 
                 if (isUnbreakable) {
                     // Always prevent breaking bedrock/unbreakable blocks, regardless of enchantment
@@ -125,8 +123,7 @@ public class AreaMineHandler {
                         .getEntry(AreaEnchantMod.AREA_MINE.getValue()).orElse(null);
                     if (entry != null && EnchantmentHelper.getLevel(entry, stack) > 0) {
                         // Player has area mine - check if this is an ore
-                        boolean isOre = blockId.contains("_ore") || 
-                                       (blockId.contains("deepslate") && (blockId.contains("ore") || blockId.contains("_ore")));
+                        boolean isOre = BlockClassifier.isVeinOre(state);
                         if (isOre) {
                             // CRITICAL: oreharvester bypasses PlayerBlockBreakEvents.AFTER, so we need to handle ores differently
                             // CRITICAL: We MUST save block states NOW before oreharvester breaks them!
@@ -160,9 +157,9 @@ public class AreaMineHandler {
                                                 depthSize += 2;
                                             }
                                             
-                                            // Get blocks to mine
-                                            List<BlockPos> blocksToMine = MiningPattern.getBlocksToMine(
-                                                currentPattern, pos, face, horizontalSize, verticalSize, depthSize);
+                                            // Get blocks to mine (cached template - handleAreaMining reuses the same one)
+                                            MiningPattern.Template template = MiningPattern.getTemplate(
+                                                currentPattern, face, horizontalSize, verticalSize, depthSize);
                                             
                                             // Save ALL block states immediately (before oreharvester breaks them)
                                             preSavedUndoData = new PlayerDataManager.UndoData();
@@ -178,35 +175,43 @@ public class AreaMineHandler {
                                             
                                             preSavedUndoData.addBlock(pos, state); // Center block
                                             
-                                            // CRITICAL: Find ALL connected ores of the same type (even outside pattern)
+                                            // CRITICAL: Find connected ores of the same type (even outside pattern)
                                             // This ensures we can undo ores broken by oreharvester outside the pattern
-                                            java.util.Set<BlockPos> patternBlocksSet = new java.util.HashSet<>(blocksToMine);
-                                            java.util.Set<BlockPos> allConnectedOres = findConnectedOres(
-                                                serverWorld, pos, state.getBlock(), patternBlocksSet
-                                            );
-                                            
-                                            // Save ALL connected ore states (including those outside pattern)
-                                            for (BlockPos orePos : allConnectedOres) {
-                                                if (!orePos.equals(pos)) { // Skip center (already added)
-                                                    BlockState oreState = serverWorld.getBlockState(orePos);
-                                                    if (!oreState.isAir() && oreState.getBlock() == state.getBlock()) {
-                                                        preSavedUndoData.addBlock(orePos, oreState);
+                                            // Bounded by oreFloodFillMaxBlocks/MaxRadius so a huge vein can't stall the tick
+                                            SectionBlockReader reader = new SectionBlockReader(serverWorld);
+                                            LongOpenHashSet allConnectedOres = OreFloodFill.fill(reader, pos, state.getBlock());
+                                            try {
+                                                // Save ALL connected ore states (including those outside pattern)
+                                                long centerPacked = pos.asLong();
+                                                LongIterator oreIterator = allConnectedOres.iterator();
+                                                while (oreIterator.hasNext()) {
+                                                    long packedOre = oreIterator.nextLong();
+                                                    if (packedOre != centerPacked) { // Skip center (already added)
+                                                        BlockPos orePos = BlockPos.fromLong(packedOre);
+                                                        BlockState oreState = reader.getBlockState(orePos);
+                                                        if (!oreState.isAir() && oreState.getBlock() == state.getBlock()) {
+                                                            preSavedUndoData.addBlock(orePos, oreState);
+                                                        }
                                                     }
                                                 }
-                                            }
-                                            
-                                            // Also save pattern blocks that aren't ores (for regular blocks in pattern)
-                                            for (BlockPos blockPos : blocksToMine) {
-                                                if (!blockPos.equals(pos) && !allConnectedOres.contains(blockPos)) {
-                                                    BlockState blockState = serverWorld.getBlockState(blockPos);
-                                                    if (!blockState.isAir()) {
-                                                        preSavedUndoData.addBlock(blockPos, blockState);
+                                                
+                                                // Also save pattern blocks that aren't ores (for regular blocks in pattern)
+                                                BlockPos.Mutable blockPos = new BlockPos.Mutable();
+                                                for (int i = 0; i < template.size(); i++) {
+                                                    template.getPos(i, pos, blockPos);
+                                                    if (!blockPos.equals(pos) && !allConnectedOres.contains(blockPos.asLong())) {
+                                                        BlockState blockState = reader.getBlockState(blockPos);
+                                                        if (!blockState.isAir()) {
+                                                            preSavedUndoData.addBlock(blockPos.toImmutable(), blockState);
+                                                        }
                                                     }
                                                 }
+                                            } finally {
+                                                PositionPool.release(allConnectedOres);
                                             }
                                         }
                                     } catch (Exception e) {
-                                        e.printStackTrace();
+                                        AreaMineLog.error("ORE", "Failed to pre-save undo data for ore break", e);
                                     }
                                 }
                                 
@@ -232,10 +237,7 @@ public class AreaMineHandler {
         // Handle area mining after block is broken
         // CRITICAL: This event must be registered SECOND to handle area mining after the block is broken
         PlayerBlockBreakEvents.AFTER.register((world, player, pos, state, blockEntity) -> {
-            // CRITICAL: Log ALL block breaks to see if AFTER event fires at all
-            String brokenBlockId = Registries.BLOCK.getId(state.getBlock()).toString();
-            boolean isOre = brokenBlockId.contains("_ore") || 
-                           (brokenBlockId.contains("deepslate") && (brokenBlockId.contains("ore") || brokenBlockId.contains("_ore")));
+            boolean isOre = BlockClassifier.isVeinOre(state);
             
             if (!(player instanceof ServerPlayerEntity serverPlayer) || !(world instanceof ServerWorld serverWorld)) {
                 return;
@@ -263,7 +265,7 @@ public class AreaMineHandler {
             }
             
             // CRITICAL: Check if the broken block was bedrock - if so, don't do area mining
-            if (brokenBlockId.equals("minecraft:bedrock") || state.getHardness(serverWorld, pos) < 0) {
+            if (BlockClassifier.hasAny(state, BlockClassifier.UNBREAKABLE)) {
                 playerMiningFaces.remove(player.getUuid()); // Clean up
                 return;
             }
@@ -302,10 +304,10 @@ public class AreaMineHandler {
     }
     
     private static void handleAreaMining(ServerPlayerEntity player, ServerWorld world, BlockPos pos, Direction miningFace, BlockState originalCenterBlockState) {
+        // Only recorded if the activation gets as far as breaking (or planning) - checks that bail out aren't activations
+        MiningMetrics.Span activation = MiningMetrics.begin(MiningMetrics.Stage.ACTIVATION);
         UUID playerId = player.getUuid();
-        String centerBlockId = Registries.BLOCK.getId(originalCenterBlockState.getBlock()).toString();
-        boolean isOre = centerBlockId.contains("_ore") || 
-                       (centerBlockId.contains("deepslate") && (centerBlockId.contains("ore") || centerBlockId.contains("_ore")));
+        boolean isOre = BlockClassifier.isVeinOre(originalCenterBlockState);
         
         // CRITICAL: Check if we're already breaking an area FIRST, before any other checks
         // This is a redundant check (we already check in AFTER event), but extra safety
@@ -317,10 +319,7 @@ public class AreaMineHandler {
         
         // Safety check: If the original block is bedrock or unbreakable, don't do area mining
         BlockState originalState = world.getBlockState(pos);
-        String originalBlockId = Registries.BLOCK.getId(originalState.getBlock()).toString();
-        if (originalState.getHardness(world, pos) < 0 || 
-            originalBlockId.equals("minecraft:bedrock") ||
-            AreaEnchantMod.config.blockBlacklist.contains(originalBlockId)) {
+        if (BlockClassifier.isProtected(originalState)) {
             return;
         }
         
@@ -410,113 +409,41 @@ public class AreaMineHandler {
         }
         
         // Get blocks to mine - ONLY blocks within the pattern, nothing else
-        List<BlockPos> blocksToMine = MiningPattern.getBlocksToMine(
+        // The template is cached, so this doesn't allocate a position per block
+        MiningMetrics.Span patternSpan = MiningMetrics.begin(MiningMetrics.Stage.PATTERN);
+        MiningPattern.Template template = MiningPattern.getTemplate(
             currentPattern,
-            pos,
             miningFace,
             horizontalSize,
             verticalSize,
             depthSize
         );
+        patternSpan.end(template.size());
         
-        // CRITICAL: Verify blocks are within the pattern bounds - no ore connection logic should add blocks
-        // The pattern should ONLY contain blocks within the specified dimensions
-        java.util.Set<BlockPos> blocksToMineSet = new java.util.HashSet<>(blocksToMine);
-        if (blocksToMine.size() != blocksToMineSet.size()) {
-            // Duplicate blocks filtered out
-        }
-        
-        // Filter blocks
         BlockState originalBlock = world.getBlockState(pos);
-        List<BlockPos> filteredBlocks = new ArrayList<>();
         
-        
-        int skippedCenter = 0;
-        int skippedAir = 0;
-        int skippedBlacklist = 0;
-        int skippedWhitelist = 0;
-        int skippedFilter = 0;
-        int skippedVeinMining = 0;
-        int added = 0;
-        
-        for (BlockPos blockPos : blocksToMine) {
-            BlockState blockState = world.getBlockState(blockPos);
-            
-            // CRITICAL: Skip the original block (already broken)
-            // This is the center block that triggered the area mine
-            // We don't want to break it again, and we don't want it in filteredBlocks
-            if (blockPos.equals(pos)) {
-                skippedCenter++;
-                continue;
-            }
-            
-            // Skip air (but center block might be air, which is fine)
-            if (blockState.isAir()) {
-                skippedAir++;
-                continue;
-            }
-            
-            // Check blacklist/whitelist
-            String blockId = Registries.BLOCK.getId(blockState.getBlock()).toString();
-            
-            // CRITICAL: Check for unbreakable blocks (bedrock has hardness -1.0f) FIRST
-            // This must be checked before any other filtering to prevent bedrock from being broken
-            float hardness = blockState.getHardness(world, blockPos);
-            if (hardness < 0 || blockId.equals("minecraft:bedrock")) {
-                continue;
-            }
-            
-            // Check blacklist (bedrock should be in here too, but double-check)
-            if (AreaEnchantMod.config.blockBlacklist.contains(blockId)) {
-                skippedBlacklist++;
-                continue;
-            }
-            
-            if (!AreaEnchantMod.config.blockWhitelist.isEmpty()) {
-                if (!AreaEnchantMod.config.blockWhitelist.contains(blockId)) {
-                    skippedWhitelist++;
-                    continue;
-                }
-            }
-            
-            // Apply block filters (pickaxe-effective, ores-only, stone-only, etc.)
-            // BUT: Always allow ores (including deepslate ores) regardless of other filters
-            // Check for ores: contains "_ore" OR is a deepslate ore variant
-            boolean isBlockOre = blockId.contains("_ore") || 
-                           (blockId.contains("deepslate") && (blockId.contains("ore") || blockId.contains("_ore")));
-            
-            // Check if it's a common mining block that should always be allowed
-            boolean isCommonMiningBlock = blockId.contains("stone") || 
-                                          blockId.contains("deepslate") ||
-                                          blockId.contains("cobblestone") ||
-                                          blockId.contains("netherrack") ||
-                                          blockId.contains("basalt") ||
-                                          blockId.contains("blackstone") ||
-                                          blockId.contains("end_stone") ||
-                                          blockId.contains("obsidian");
-            
-            if (!isBlockOre && !isCommonMiningBlock && !BlockFilter.shouldMineBlock(blockState, AreaEnchantMod.config)) {
-                // For other blocks, apply normal filters
-                skippedFilter++;
-                continue;
-            }
-            
-            // Vein mining check - ONLY apply if veinMiningMode is enabled
-            // IMPORTANT: This should NOT affect ores or blocks outside the pattern
-            // The pattern already defines the area, so vein mining just filters by type within that area
-            if (AreaEnchantMod.config.veinMiningMode && !originalBlock.isAir()) {
-                String originalId = Registries.BLOCK.getId(originalBlock.getBlock()).toString();
-                if (!blockId.equals(originalId)) {
-                    skippedVeinMining++;
-                    continue;
-                }
-            }
-            
-            filteredBlocks.add(blockPos);
-            added++;
+        // Large activations: only snapshot the affected sections here, filter and pre-snapshot undo on a
+        // planner thread, and start breaking when the plan comes back (AreaMinePlanner.drainCompleted).
+        // Small ones are planned below - filtering a few dozen blocks costs less than the snapshot and hand-off
+        if (AreaEnchantMod.config.asyncPlanning && AreaEnchantMod.config.batchedBreaking
+                && template.size() >= AreaEnchantMod.config.asyncPlanningMinBlocks) {
+            // CRITICAL: Set breaking flag now - it covers the planning as well as the breaking
+            isBreakingArea.put(playerId, true);
+            AreaMinePlanner.submit(player, world, pos, template, originalBlock, originalCenterBlockState, stack, level, isOre);
+            activation.end(template.size());
+            return;
         }
         
+        // Filter blocks
+        // Read candidates through their chunk sections - one chunk lookup per section instead of per block
+        // Packed positions from the per-thread pool - handed to the breaker or released below
+        MiningMetrics.Span filterSpan = MiningMetrics.begin(MiningMetrics.Stage.FILTER);
+        SectionBlockReader reader = new SectionBlockReader(world);
+        LongArrayList filteredBlocks = AreaMinePlanner.selectBlocks(reader, template, pos, originalBlock, PositionPool.acquireList());
+        filterSpan.end(filteredBlocks.size());
+        
         if (filteredBlocks.isEmpty()) {
+            PositionPool.release(filteredBlocks);
             return;
         }
         
@@ -531,104 +458,59 @@ public class AreaMineHandler {
         // CRITICAL: Track player's inventory state BEFORE breaking blocks
         // This allows us to restore inventory to the exact state it was before
         if (AreaEnchantMod.config.enableUndo) {
-            for (int i = 0; i < player.getInventory().size(); i++) {
-                ItemStack invStack = player.getInventory().getStack(i);
-                if (!invStack.isEmpty()) {
-                    String itemId = Registries.ITEM.getId(invStack.getItem()).toString();
-                    undoData.inventoryBefore.put(itemId, undoData.inventoryBefore.getOrDefault(itemId, 0) + invStack.getCount());
-                }
-            }
+            captureInventoryBefore(player, undoData);
         }
         
         // CRITICAL: Pre-add all blocks to undo data BEFORE storing it
         // This ensures all blocks are tracked even if breaking fails partway through
         // CRITICAL: Add the center block FIRST (it was already broken, so we use the original state)
         if (AreaEnchantMod.config.enableUndo) {
+            MiningMetrics.Span undoSpan = MiningMetrics.begin(MiningMetrics.Stage.UNDO_SNAPSHOT);
             // Add the center block (the one that was just broken) - use original state from BEFORE event
             undoData.addBlock(pos, originalCenterBlockState);
             
             // CRITICAL: For ores, we need to save states RIGHT NOW before any other mods can modify them
             // Ore vein mods (like oreharvester) might process PlayerBlockBreakEvents and modify/break connected ores
             // By saving states immediately here, we capture them before other mods can interfere
-            int oreCount = 0;
-            int regularBlockCount = 0;
-            int alreadyBrokenOres = 0;
-            for (BlockPos blockPos : filteredBlocks) {
+            for (int i = 0; i < filteredBlocks.size(); i++) {
+                BlockPos blockPos = BlockPos.fromLong(filteredBlocks.getLong(i));
                 // CRITICAL: Get the block state synchronously on the server thread RIGHT NOW
                 // This ensures we get the actual state at this moment, before any other mods process events
                 // We MUST do this before any block breaking starts to prevent ore vein mods from modifying blocks
-                BlockState blockState = world.getBlockState(blockPos);
-                String blockId = Registries.BLOCK.getId(blockState.getBlock()).toString();
-                
-                // Track ore vs regular blocks for debugging
-                boolean isBlockOre = blockId.contains("_ore") || 
-                               (blockId.contains("deepslate") && (blockId.contains("ore") || blockId.contains("_ore")));
-                
-                // CRITICAL: Check if ore is already broken (oreharvester might have broken it)
-                if (isBlockOre && blockState.isAir()) {
-                    alreadyBrokenOres++;
-                    // Still save it (as air) so undo doesn't fail
-                } else if (isBlockOre) {
-                    oreCount++;
-                } else {
-                    regularBlockCount++;
-                }
-                
-                // CRITICAL: For ores, we need to capture the EXACT state including all properties
-                // Some ore vein mods might change block states or break connected ores
-                // By saving immediately, we preserve the state before any modifications
-                
+                // (nothing has been broken since the filter pass, so the section reader is still valid)
                 // Add ALL blocks to undo data with their current state
                 // This is critical for ores - we need to preserve the exact block state
-                undoData.addBlock(blockPos, blockState);
+                undoData.addBlock(blockPos, reader.getBlockState(blockPos));
             }
+            undoSpan.end(undoData.size());
         }
         
-        // CRITICAL: Save undo data to separate storage IMMEDIATELY so it persists
-        // This ensures undo data is available even if player data is reloaded
-        // IMPORTANT: Only save if we have blocks to mine, and don't overwrite existing undo data
-        // CRITICAL: For ores, check if we already have pre-saved undo data (from BEFORE event)
-        if (AreaEnchantMod.config.enableUndo) {
-            PlayerDataManager.UndoData existingUndo = PlayerDataManager.getUndoData(player.getUuid());
-            
-            // If we have pre-saved undo data (from BEFORE event for ores), use it instead
-            if (isOre && existingUndo != null && !existingUndo.blocks.isEmpty()) {
-                undoData = existingUndo;
-            } else if (!undoData.blocks.isEmpty()) {
-                // Check if undo data already exists - if so, don't overwrite it (prevents recursive calls from clearing it)
-                // CRITICAL: This check prevents ore vein mods from triggering new area mine events that overwrite undo data
-                if (existingUndo != null && !existingUndo.blocks.isEmpty()) {
-                    // CRITICAL: Don't overwrite existing undo data - use it instead
-                    // This prevents ore vein mods from clearing undo data when they break connected ores
-                    undoData = existingUndo;
-                } else {
-                    // Store in separate storage (NOT in PlayerData, so it persists across cache clears)
-                    PlayerDataManager.setUndoData(player.getUuid(), undoData);
-                }
-            }
-        }
+        undoData = resolveUndoData(player, undoData, isOre);
         
         // Use batched breaking if enabled
         if (AreaEnchantMod.config.batchedBreaking) {
             // CRITICAL: Keep isBreakingArea=true until batched breaking completes
             // This prevents block break events from batched breaking from triggering new area mine events
+            int selected = filteredBlocks.size(); // The list belongs to the breaker from here on
             BatchedBlockBreaker.startBreaking(player, world, filteredBlocks, stack, level, undoData);
+            activation.end(selected);
             // NOTE: isBreakingArea will be cleared in BatchedBlockBreaker.finish() to prevent re-entry
             // Note: Undo data will be saved in BatchedBlockBreaker.finish()
             return;
         }
         
         // Instant breaking
+        MiningMetrics.Span breakSpan = MiningMetrics.begin(MiningMetrics.Stage.BREAK);
         int blocksMined = 0;
         boolean autoPickup = AreaEnchantMod.config.autoPickup || playerData.hasUpgrade("auto_pickup");
+        // Auto-pickup drops are inserted together after the loop
+        DropAggregator pickup = new DropAggregator();
         
         // CRITICAL: Only break blocks that are in filteredBlocks - nothing else
         // This ensures we NEVER break blocks outside the pattern, even if they're connected ores
-        for (BlockPos otherPos : filteredBlocks) {
-            // Verify this block is actually in our filtered list (safety check)
-            if (!filteredBlocks.contains(otherPos)) {
-                continue;
-            }
+        for (int i = 0; i < filteredBlocks.size(); i++) {
+            long packedPos = filteredBlocks.getLong(i);
+            BlockPos otherPos = BlockPos.fromLong(packedPos);
             
             BlockState blockState = world.getBlockState(otherPos);
             // Skip air blocks (but center block might be air, which is already handled above)
@@ -641,24 +523,15 @@ public class AreaMineHandler {
             // between when we saved it and now
             if (AreaEnchantMod.config.enableUndo && undoData != null) {
                 // Check if block is in undo data
-                boolean alreadyAdded = undoData.blocks.stream().anyMatch(b -> b.pos.equals(otherPos));
-                if (!alreadyAdded) {
+                if (!undoData.containsBlock(packedPos)) {
                     // Shouldn't happen, but add it as backup
                     undoData.addBlock(otherPos, blockState);
                 } else {
                     // For ores, update the saved state to match current state
                     // Ore vein mods might have modified the block after we saved it
-                    String blockId = Registries.BLOCK.getId(blockState.getBlock()).toString();
-                    boolean isBlockOre = blockId.contains("_ore") || 
-                                   (blockId.contains("deepslate") && (blockId.contains("ore") || blockId.contains("_ore")));
-                    
-                    if (isBlockOre) {
+                    if (BlockClassifier.isVeinOre(blockState)) {
                         // Re-check state right before breaking to ensure we have the correct state
-                        BlockState currentState = world.getBlockState(otherPos);
-                        undoData.blocks.stream()
-                            .filter(b -> b.pos.equals(otherPos))
-                            .findFirst()
-                            .ifPresent(b -> b.state = currentState);
+                        undoData.setState(packedPos, world.getBlockState(otherPos));
                     }
                 }
             }
@@ -672,10 +545,7 @@ public class AreaMineHandler {
             
             // Final safety check: Never break unbreakable blocks (bedrock, etc.)
             // This is a redundant check since we already filtered, but extra safety
-            String blockId = Registries.BLOCK.getId(blockState.getBlock()).toString();
-            float hardness = blockState.getHardness(world, otherPos);
-            if (hardness < 0 || blockId.equals("minecraft:bedrock") || 
-                AreaEnchantMod.config.blockBlacklist.contains(blockId)) {
+            if (BlockClassifier.isProtected(blockState)) {
                 continue; // Skip unbreakable blocks
             }
             
@@ -686,7 +556,7 @@ public class AreaMineHandler {
             boolean broken = false;
             
             // Verify the block is still there and matches what we expect
-            if (!stateBeforeBreak.isAir() && Registries.BLOCK.getId(stateBeforeBreak.getBlock()).toString().equals(blockId)) {
+            if (!stateBeforeBreak.isAir() && stateBeforeBreak.getBlock() == blockState.getBlock()) {
                 // Set block to air directly (flag 3 = notify neighbors and listeners, but won't trigger PlayerBlockBreakEvents)
                 world.setBlockState(otherPos, net.minecraft.block.Blocks.AIR.getDefaultState(), 3);
                 
@@ -709,40 +579,7 @@ public class AreaMineHandler {
                 if (!player.isCreative()) {
                     for (ItemStack drop : drops) {
                         if (autoPickup) {
-                            ItemStack originalDrop = drop.copy();
-                            int originalCount = originalDrop.getCount();
-                            
-                            // Try to insert - this modifies drop in place
-                            boolean fullyInserted = player.getInventory().insertStack(drop);
-                            
-                            if (fullyInserted) {
-                                // All items were added to inventory
-                                if (AreaEnchantMod.config.enableUndo) {
-                                    String itemId = Registries.ITEM.getId(originalDrop.getItem()).toString();
-                                    undoData.addInventoryItem(itemId, originalCount);
-                                }
-                            } else {
-                                // Some or all items couldn't fit - drop the remainder
-                                int insertedCount = originalCount - drop.getCount();
-                                int droppedCount = drop.getCount();
-                                
-                                // Track what was inserted
-                                if (insertedCount > 0 && AreaEnchantMod.config.enableUndo) {
-                                    String itemId = Registries.ITEM.getId(originalDrop.getItem()).toString();
-                                    undoData.addInventoryItem(itemId, insertedCount);
-                                }
-                                
-                                // Drop the remainder
-                                if (droppedCount > 0) {
-                                    ItemEntity itemEntity = new ItemEntity(world,
-                                        otherPos.getX() + 0.5, otherPos.getY() + 0.5, otherPos.getZ() + 0.5, drop);
-                                    world.spawnEntity(itemEntity);
-                                    // Track dropped item entity for undo
-                                    if (AreaEnchantMod.config.enableUndo) {
-                                        undoData.addItemEntity(itemEntity.getUuid());
-                                    }
-                                }
-                            }
+                            pickup.add(drop, otherPos);
                         } else {
                             // Drop item in world
                             ItemEntity itemEntity = new ItemEntity(world,
@@ -758,6 +595,17 @@ public class AreaMineHandler {
                 // NOTE: blocksMined is already incremented above, no need to increment again
             }
         }
+        PositionPool.release(filteredBlocks);
+        
+        // One pass over the inventory for all auto-pickup drops - what doesn't fit is spawned merged
+        if (!pickup.isEmpty()) {
+            PlayerDataManager.UndoData pickupUndo = AreaEnchantMod.config.enableUndo ? undoData : null;
+            DropAggregator leftovers = new DropAggregator();
+            pickup.insertInto(player.getInventory(), pickupUndo, leftovers::add);
+            leftovers.spawn(world, pickupUndo);
+        }
+        breakSpan.end(blocksMined);
+        MiningMetrics.addBlocksBroken(blocksMined);
         
         // Apply durability cost
         if (AreaEnchantMod.config.durabilityScaling && !player.isCreative() && blocksMined > 0) {
@@ -773,13 +621,72 @@ public class AreaMineHandler {
         }
         
         // Final save of undo data after all blocks are broken (only for instant breaking, batched breaking saves in finish())
-        if (AreaEnchantMod.config.enableUndo && !undoData.blocks.isEmpty()) {
+        if (AreaEnchantMod.config.enableUndo && !undoData.isEmpty()) {
             // Save to separate storage (NOT in PlayerData)
             PlayerDataManager.setUndoData(player.getUuid(), undoData);
         }
         
         // Clear breaking flag
         isBreakingArea.put(player.getUuid(), false);
+        activation.end(blocksMined);
+    }
+    
+    /** Record the player's inventory before an activation so undo can restore it exactly. */
+    static void captureInventoryBefore(ServerPlayerEntity player, PlayerDataManager.UndoData undoData) {
+        for (int i = 0; i < player.getInventory().size(); i++) {
+            ItemStack invStack = player.getInventory().getStack(i);
+            if (!invStack.isEmpty()) {
+                String itemId = Registries.ITEM.getId(invStack.getItem()).toString();
+                undoData.inventoryBefore.put(itemId, undoData.inventoryBefore.getOrDefault(itemId, 0) + invStack.getCount());
+            }
+        }
+    }
+    
+    /**
+     * Decide which undo data an activation records into, storing the new one if nothing else is stored.
+     * @return undoData, or the already stored undo data if that must be kept
+     */
+    private static PlayerDataManager.UndoData resolveUndoData(ServerPlayerEntity player, PlayerDataManager.UndoData undoData, boolean isOre) {
+        // CRITICAL: Save undo data to separate storage IMMEDIATELY so it persists
+        // This ensures undo data is available even if player data is reloaded
+        // IMPORTANT: Only save if we have blocks to mine, and don't overwrite existing undo data
+        // CRITICAL: For ores, check if we already have pre-saved undo data (from BEFORE event)
+        if (!AreaEnchantMod.config.enableUndo) {
+            return undoData;
+        }
+        PlayerDataManager.UndoData existingUndo = PlayerDataManager.getUndoData(player.getUuid());
+        
+        // If we have pre-saved undo data (from BEFORE event for ores), use it instead
+        if (isOre && existingUndo != null && !existingUndo.isEmpty()) {
+            return existingUndo;
+        } else if (!undoData.isEmpty()) {
+            // Check if undo data already exists - if so, don't overwrite it (prevents recursive calls from clearing it)
+            // CRITICAL: This check prevents ore vein mods from triggering new area mine events that overwrite undo data
+            if (existingUndo != null && !existingUndo.isEmpty()) {
+                // CRITICAL: Don't overwrite existing undo data - use it instead
+                // This prevents ore vein mods from clearing undo data when they break connected ores
+                return existingUndo;
+            }
+            // Store in separate storage (NOT in PlayerData, so it persists across cache clears)
+            PlayerDataManager.setUndoData(player.getUuid(), undoData);
+        }
+        return undoData;
+    }
+    
+    /**
+     * Start breaking a plan made by AreaMinePlanner (server thread).
+     * The breaking flag was set when the plan was submitted; it's cleared here if there's nothing to break,
+     * otherwise by BatchedBlockBreaker when the task finishes.
+     */
+    static void commitPlan(ServerPlayerEntity player, ServerWorld world, LongArrayList blocks, ItemStack tool, int level,
+                           PlayerDataManager.UndoData undoData, boolean isOre, BlockState originalBlock) {
+        if (blocks.isEmpty()) {
+            clearBreakingFlag(player.getUuid());
+            return;
+        }
+        undoData = resolveUndoData(player, undoData, isOre);
+        // The plan was made from a snapshot - have the breaker recheck every block against the live world
+        BatchedBlockBreaker.startBreaking(player, world, blocks, tool, level, undoData, originalBlock);
     }
     
     /**
@@ -828,7 +735,7 @@ public class AreaMineHandler {
                 // Block was broken - process area mining
                 // CRITICAL: If we have pre-saved undo data, save it NOW before handleAreaMining
                 // (oreharvester already broke all the ores, so we can't save them in handleAreaMining)
-                if (pending.preSavedUndoData != null && !pending.preSavedUndoData.blocks.isEmpty()) {
+                if (pending.preSavedUndoData != null && !pending.preSavedUndoData.isEmpty()) {
                     // CRITICAL: Track item entities dropped by oreharvester near broken block positions
                     // This prevents duplication when undoing ore mining
                     trackOreItemEntities(pending.preSavedUndoData, pending.world, pending.player);
@@ -843,13 +750,11 @@ public class AreaMineHandler {
                 // Actually, let's just keep it for one more tick in case oreharvester is still processing
                 // But remove it after a few ticks to prevent memory leaks
                 // For now, we'll process it immediately if the block state changed (oreharvester might have modified it)
-                String currentBlockId = Registries.BLOCK.getId(currentState.getBlock()).toString();
-                String originalBlockId = Registries.BLOCK.getId(pending.originalState.getBlock()).toString();
-                if (!currentBlockId.equals(originalBlockId)) {
+                if (currentState.getBlock() != pending.originalState.getBlock()) {
                     // Block changed - process it
                     // CRITICAL: Track item entities if we have pre-saved undo data
                     // Use the same optimized tracking logic as above
-                    if (pending.preSavedUndoData != null && !pending.preSavedUndoData.blocks.isEmpty()) {
+                    if (pending.preSavedUndoData != null && !pending.preSavedUndoData.isEmpty()) {
                         // Reuse the same optimized item tracking logic (extracted to avoid duplication)
                         trackOreItemEntities(pending.preSavedUndoData, pending.world, pending.player);
                         PlayerDataManager.setUndoData(pending.player.getUuid(), pending.preSavedUndoData);
@@ -880,6 +785,7 @@ public class AreaMineHandler {
      * Also tracks what items SHOULD have been dropped, so we can remove them from inventory if they were picked up.
      */
     private static void trackOreItemEntities(PlayerDataManager.UndoData undoData, ServerWorld world, ServerPlayerEntity player) {
+        MiningMetrics.Span span = MiningMetrics.begin(MiningMetrics.Stage.TRACK_ORE_ITEMS);
         int trackedItems = 0;
         
         // CRITICAL: Calculate what items SHOULD have been dropped from all broken blocks
@@ -890,8 +796,10 @@ public class AreaMineHandler {
         java.util.Set<net.minecraft.item.Item> allPossibleDropItems = new java.util.HashSet<>();
         java.util.Map<BlockPos, java.util.Set<net.minecraft.item.Item>> blockDropItems = new java.util.HashMap<>();
         
-        for (PlayerDataManager.UndoData.BlockStateData blockData : undoData.blocks) {
-            net.minecraft.block.Block block = blockData.state.getBlock();
+        for (int i = 0; i < undoData.size(); i++) {
+            BlockPos blockPos = BlockPos.fromLong(undoData.getPosAt(i));
+            BlockState blockState = undoData.getStateAt(i);
+            net.minecraft.block.Block block = blockState.getBlock();
             net.minecraft.item.Item blockItem = block.asItem();
             
             if (blockItem != null && !blockItem.equals(net.minecraft.item.Items.AIR)) {
@@ -903,7 +811,7 @@ public class AreaMineHandler {
                 try {
                     // Block is already broken, so blockEntity will be null - that's fine
                     List<ItemStack> droppedStacks = Block.getDroppedStacks(
-                        blockData.state, world, blockData.pos, 
+                        blockState, world, blockPos, 
                         null, // Block entity is null since block is already broken
                         player, player.getMainHandStack()
                     );
@@ -917,7 +825,7 @@ public class AreaMineHandler {
                     // If getDroppedStacks fails, just use the block item
                 }
                 
-                blockDropItems.put(blockData.pos, drops);
+                blockDropItems.put(blockPos, drops);
                 allPossibleDropItems.addAll(drops);
             }
         }
@@ -1005,69 +913,7 @@ public class AreaMineHandler {
                 undoData.addInventoryItem(itemId, expectedCount);
             }
         }
-    }
-    
-    /**
-     * Find all connected ores of the same type using flood-fill algorithm.
-     * This includes ores both inside and outside the pattern, which is critical
-     * for compatibility with ore harvester mods that break connected ores.
-     * 
-     * @param world The server world
-     * @param startPos The starting position (center block)
-     * @param targetBlock The block type to search for (must match)
-     * @param patternBlocks Set of blocks within the pattern (for reference, but we search beyond it)
-     * @return Set of all connected block positions of the same type
-     */
-    private static java.util.Set<BlockPos> findConnectedOres(
-            ServerWorld world, BlockPos startPos, net.minecraft.block.Block targetBlock, 
-            java.util.Set<BlockPos> patternBlocks) {
-        java.util.Set<BlockPos> connected = new java.util.HashSet<>();
-        java.util.Queue<BlockPos> queue = new java.util.LinkedList<>();
-        java.util.Set<BlockPos> visited = new java.util.HashSet<>();
-        
-        // Start from the center position
-        queue.add(startPos);
-        visited.add(startPos);
-        
-        // Maximum search radius to prevent infinite loops (reasonable limit for ore veins)
-        // Most ore veins are within 50 blocks, but we'll use a larger limit for safety
-        int maxRadius = 100;
-        int startX = startPos.getX();
-        int startY = startPos.getY();
-        int startZ = startPos.getZ();
-        
-        // Flood-fill to find all connected blocks of the same type
-        while (!queue.isEmpty()) {
-            BlockPos current = queue.poll();
-            connected.add(current);
-            
-            // Check all 6 neighbors (up, down, north, south, east, west)
-            for (Direction dir : Direction.values()) {
-                BlockPos neighbor = current.offset(dir);
-                
-                // Skip if already visited
-                if (visited.contains(neighbor)) {
-                    continue;
-                }
-                
-                // Check if within reasonable distance (prevent infinite search)
-                int dx = Math.abs(neighbor.getX() - startX);
-                int dy = Math.abs(neighbor.getY() - startY);
-                int dz = Math.abs(neighbor.getZ() - startZ);
-                if (dx > maxRadius || dy > maxRadius || dz > maxRadius) {
-                    continue;
-                }
-                
-                // Check if neighbor is the same block type
-                BlockState neighborState = world.getBlockState(neighbor);
-                if (neighborState.getBlock() == targetBlock && !neighborState.isAir()) {
-                    visited.add(neighbor);
-                    queue.add(neighbor);
-                }
-            }
-        }
-        
-        return connected;
+        span.end(trackedItems);
     }
     
     private static double getDurabilityMultiplier(int level) {
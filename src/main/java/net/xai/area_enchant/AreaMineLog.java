@@ -0,0 +1,193 @@
+package net.xai.area_enchant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Logging for the mining pipeline.
+ *
+ * Disabled levels cost one comparison (messages are built lazily from suppliers, only when the
+ * level is on). Each category's TRACE/DEBUG/INFO output is rate limited to config.logRateLimitPerSecond
+ * messages per second, with a summary of what was dropped once the window rolls over - warnings and
+ * errors always get through. Messages are formatted and written to SLF4J by a background thread, so
+ * the server thread never waits on console I/O.
+ *
+ * The game's logger config only lets INFO and above through, so TRACE and DEBUG are written at INFO
+ * with the level in the prefix - the threshold here (config.logLevel) decides what is printed.
+ *
+ * Categories match the old "[Area Mine] [CATEGORY]" prefixes (BATCHED, GET, SAVE, MIXIN, ...).
+ */
+public final class AreaMineLog {
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("area-mine");
+
+    // Messages waiting for the appender thread - dropped (and counted) when full instead of blocking the caller
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong droppedMessages = new AtomicLong();
+
+    private static final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+
+    private static volatile int threshold = Level.INFO.ordinal();
+    private static volatile int maxPerSecond = 20;
+
+    private static final Thread appender = new Thread(AreaMineLog::runAppender, "Area Mine Log");
+    static {
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    private AreaMineLog() {
+    }
+
+    /** Apply logLevel / logRateLimitPerSecond from the config (load and /areamine reload). */
+    public static void configure(AreaEnchantMod.Config config) {
+        Level level = Level.INFO;
+        if (config.logLevel != null) {
+            try {
+                level = Level.valueOf(config.logLevel.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                warn("CONFIG", "Unknown logLevel '" + config.logLevel + "', using INFO");
+            }
+        }
+        threshold = level.ordinal();
+        maxPerSecond = config.logRateLimitPerSecond;
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static void debug(String category, Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, category, message.get(), null);
+        }
+    }
+
+    public static void info(String category, Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, category, message.get(), null);
+        }
+    }
+
+    public static void info(String category, String message) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, category, message, null);
+        }
+    }
+
+    public static void warn(String category, Supplier<String> message) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, category, message.get(), null);
+        }
+    }
+
+    public static void warn(String category, String message) {
+        if (isEnabled(Level.WARN)) {
+            log(Level.WARN, category, message, null);
+        }
+    }
+
+    public static void error(String category, String message) {
+        error(category, message, null);
+    }
+
+    public static void error(String category, String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, category, message, error);
+        }
+    }
+
+    /** Write everything still queued (server stopping). Waits at most timeoutMillis. */
+    public static void flush(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!queue.isEmpty() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void log(Level level, String category, String message, Throwable error) {
+        if (level.ordinal() >= Level.WARN.ordinal()) {
+            offer(new Entry(level, category, message, error)); // Never rate limited - a repeated error still matters
+            return;
+        }
+        RateLimiter limiter = limiters.computeIfAbsent(category, c -> new RateLimiter());
+        long suppressed = limiter.tryAcquire(System.currentTimeMillis(), maxPerSecond);
+        if (suppressed < 0) {
+            return;
+        }
+        if (suppressed > 0) {
+            offer(new Entry(Level.WARN, category, suppressed + " messages suppressed in the last second", null));
+        }
+        offer(new Entry(level, category, message, error));
+    }
+
+    private static void offer(Entry entry) {
+        if (!queue.offer(entry)) {
+            droppedMessages.incrementAndGet();
+        }
+    }
+
+    private static void runAppender() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long dropped = droppedMessages.getAndSet(0);
+            if (dropped > 0) {
+                LOGGER.warn("[Area Mine] [LOG] Log queue full, dropped {} messages", dropped);
+            }
+            String line = "[Area Mine] [" + entry.category + "] " + entry.message;
+            switch (entry.level) {
+                // Already filtered by threshold - at debug()/trace() the root logger (INFO) would drop them
+                case TRACE -> LOGGER.info("[TRACE] " + line, entry.error);
+                case DEBUG -> LOGGER.info("[DEBUG] " + line, entry.error);
+                case INFO -> LOGGER.info(line, entry.error);
+                case WARN -> LOGGER.warn(line, entry.error);
+                default -> LOGGER.error(line, entry.error);
+            }
+        }
+    }
+
+    private record Entry(Level level, String category, String message, Throwable error) {}
+
+    /** Fixed one-second window per category. */
+    private static final class RateLimiter {
+        private long windowStart = 0;
+        private int count = 0;
+        private long suppressed = 0;
+
+        /**
+         * @return -1 if the message must be dropped, otherwise the number of messages dropped in the
+         *         previous window (to be reported once)
+         */
+        synchronized long tryAcquire(long now, int limit) {
+            if (now - windowStart >= 1000) {
+                long dropped = suppressed;
+                windowStart = now;
+                count = 1;
+                suppressed = 0;
+                return dropped;
+            }
+            if (limit > 0 && count >= limit) {
+                suppressed++;
+                return -1;
+            }
+            count++;
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package net.xai.area_enchant;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.item.ItemStack;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Works out which blocks an activation mines.
+ *
+ * The selection rules live here so the synchronous path (handleAreaMining) and the off-thread
+ * planner use exactly the same filter. With config.asyncPlanning, for patterns of at least
+ * config.asyncPlanningMinBlocks blocks, the server thread only copies the chunk sections the pattern
+ * touches; filtering and the undo pre-snapshot run on a worker against that copy, and the finished
+ * plan is handed to BatchedBlockBreaker on the next tick.
+ * The breaker revalidates every position against the live world right before breaking it.
+ */
+public class AreaMinePlanner {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+    private static final BlockState VOID_AIR = Blocks.VOID_AIR.getDefaultState();
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static final ExecutorService workers = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2)), runnable -> {
+            Thread thread = new Thread(runnable, "Area Mine Planner-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true); // Never keep the server process alive
+            return thread;
+        });
+
+    // Finished plans waiting for the server thread
+    private static final ConcurrentLinkedQueue<Plan> completed = new ConcurrentLinkedQueue<>();
+
+    // Bumped on server stop so plans still running for the old server are thrown away
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * The per-block selection filter (everything except "is it in the pattern").
+     * Thread-safe: only reads the classification table and the config.
+     *
+     * @param originalBlock state of the block that triggered the activation (for vein mining mode)
+     */
+    public static boolean shouldMine(BlockState blockState, BlockState originalBlock) {
+        // Skip air (but center block might be air, which is fine)
+        if (blockState.isAir()) {
+            return false;
+        }
+
+        // Classification is precomputed per state - one lookup replaces the id string and substring checks
+        int traits = BlockClassifier.getTraits(blockState);
+
+        // CRITICAL: Check for unbreakable blocks (bedrock has hardness -1.0f) FIRST
+        // This must be checked before any other filtering to prevent bedrock from being broken
+        // Check blacklist (bedrock should be in here too, but double-check)
+        if ((traits & (BlockClassifier.UNBREAKABLE | BlockClassifier.BLACKLISTED)) != 0) {
+            return false;
+        }
+
+        if (!AreaEnchantMod.config.blockWhitelist.isEmpty() && (traits & BlockClassifier.WHITELISTED) == 0) {
+            return false;
+        }
+
+        // Apply block filters (pickaxe-effective, ores-only, stone-only, etc.)
+        // BUT: Always allow ores (including deepslate ores) and common mining blocks (stone, deepslate,
+        // netherrack, ...) regardless of other filters
+        if ((traits & (BlockClassifier.VEIN_ORE | BlockClassifier.COMMON_MINING)) == 0 &&
+            !BlockFilter.shouldMineBlock(blockState, AreaEnchantMod.config)) {
+            return false;
+        }
+
+        // Vein mining check - ONLY apply if veinMiningMode is enabled
+        // IMPORTANT: This should NOT affect ores or blocks outside the pattern
+        // The pattern already defines the area, so vein mining just filters by type within that area
+        if (AreaEnchantMod.config.veinMiningMode && !originalBlock.isAir()) {
+            return blockState.getBlock() == originalBlock.getBlock();
+        }
+
+        return true;
+    }
+
+    /**
+     * Select the blocks of a pattern placed around center, in pattern order.
+     * The center itself is never selected (it was already broken by the player).
+     *
+     * @return out, with the packed positions of every block to mine appended
+     */
+    public static LongArrayList selectBlocks(BlockStateLookup lookup, MiningPattern.Template template,
+                                             BlockPos center, BlockState originalBlock, LongArrayList out) {
+        BlockPos.Mutable blockPos = new BlockPos.Mutable();
+        for (int i = 0; i < template.size(); i++) {
+            template.getPos(i, center, blockPos);
+
+            // CRITICAL: Skip the original block (already broken)
+            // This is the center block that triggered the area mine
+            // We don't want to break it again, and we don't want it in the selection
+            if (blockPos.equals(center)) {
+                continue;
+            }
+
+            if (shouldMine(lookup.getBlockState(blockPos), originalBlock)) {
+                out.add(blockPos.asLong());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Snapshot the area on the server thread and plan it on a worker.
+     * The caller must already have set the player's breaking flag; it stays set until the plan is
+     * committed (or dropped) by {@link #drainCompleted()}.
+     */
+    public static void submit(ServerPlayerEntity player, ServerWorld world, BlockPos center,
+                              MiningPattern.Template template, BlockState originalBlock,
+                              BlockState originalCenterBlockState, ItemStack tool, int level, boolean isOre) {
+        SectionSnapshot snapshot = SectionSnapshot.capture(world, template.getBounds(center));
+
+        // Inventory and tool are server-thread state - capture them now, before anything is broken
+        PlayerDataManager.UndoData undoData = new PlayerDataManager.UndoData();
+        if (AreaEnchantMod.config.enableUndo) {
+            AreaMineHandler.captureInventoryBefore(player, undoData);
+        }
+
+        Plan plan = new Plan(generation.get(), player, world, tool, level, isOre, originalBlock, undoData);
+        workers.execute(() -> {
+            MiningMetrics.Span span = MiningMetrics.begin(MiningMetrics.Stage.PLAN);
+            try {
+                plan.blocks = selectBlocks(snapshot, template, center, originalBlock, new LongArrayList(template.size()));
+
+                // Undo pre-snapshot from the same copy the selection was made from
+                // The center first (it was already broken, so use the state from the BEFORE event)
+                if (AreaEnchantMod.config.enableUndo) {
+                    undoData.addBlock(center, originalCenterBlockState);
+                    for (int i = 0; i < plan.blocks.size(); i++) {
+                        long packedPos = plan.blocks.getLong(i);
+                        undoData.addBlock(BlockPos.fromLong(packedPos), snapshot.getBlockState(packedPos));
+                    }
+                }
+                span.end(plan.blocks.size());
+            } catch (Throwable t) {
+                plan.error = t;
+            }
+            completed.add(plan);
+        });
+    }
+
+    /**
+     * Hand finished plans to the breaker. Called every server tick on the server thread,
+     * before BatchedBlockBreaker.tick() so a plan starts breaking in the tick it lands.
+     */
+    public static void drainCompleted() {
+        Plan plan;
+        while ((plan = completed.poll()) != null) {
+            if (plan.generation != generation.get()) {
+                continue; // Planned for a server that has since stopped
+            }
+
+            ServerPlayerEntity player = plan.player;
+            if (plan.error != null) {
+                AreaMineLog.error("PLANNER", "Planning failed for " + player.getName().getString(), plan.error);
+                AreaMineHandler.clearBreakingFlag(player.getUuid());
+                continue;
+            }
+
+            // The world moved on while planning - drop the plan if the activation no longer makes sense
+            if (player.isRemoved() || player.getMainHandStack() != plan.tool || plan.tool.isEmpty()) {
+                AreaMineHandler.clearBreakingFlag(player.getUuid());
+                continue;
+            }
+
+            AreaMineHandler.commitPlan(player, plan.world, plan.blocks, plan.tool, plan.level,
+                plan.undoData, plan.isOre, plan.originalBlock);
+        }
+    }
+
+    /** Discard everything in flight (server stopping). */
+    public static void clear() {
+        generation.incrementAndGet();
+        completed.clear();
+    }
+
+    private static final class Plan {
+        final int generation;
+        final ServerPlayerEntity player;
+        final ServerWorld world;
+        final ItemStack tool;
+        final int level;
+        final boolean isOre;
+        final BlockState originalBlock;
+        final PlayerDataManager.UndoData undoData;
+
+        // Written by the worker, read on the server thread after the plan is polled from the queue
+        LongArrayList blocks;
+        Throwable error;
+
+        Plan(int generation, ServerPlayerEntity player, ServerWorld world, ItemStack tool,
+             int level, boolean isOre, BlockState originalBlock, PlayerDataManager.UndoData undoData) {
+            this.generation = generation;
+            this.player = player;
+            this.world = world;
+            this.tool = tool;
+            this.level = level;
+            this.isOre = isOre;
+            this.originalBlock = originalBlock;
+            this.undoData = undoData;
+        }
+    }
+
+    /**
+     * Immutable copy of the block states of every chunk section a box touches.
+     * Copying a section's palette container is a couple of array copies, so capturing is cheap
+     * on the server thread; all the per-block reads then happen on the worker.
+     * All-air and missing sections aren't copied at all and read as air.
+     */
+    static final class SectionSnapshot implements BlockStateLookup {
+        private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>();
+        private final int bottomY;
+        private final int topY; // Exclusive
+
+        private SectionSnapshot(int bottomY, int topY) {
+            this.bottomY = bottomY;
+            this.topY = topY;
+        }
+
+        static SectionSnapshot capture(ServerWorld world, BlockBox box) {
+            SectionSnapshot snapshot = new SectionSnapshot(world.getBottomY(), world.getBottomY() + world.getHeight());
+            int minSectionY = Math.max(box.getMinY(), snapshot.bottomY) >> 4;
+            int maxSectionY = Math.min(box.getMaxY(), snapshot.topY - 1) >> 4;
+            for (int sectionX = box.getMinX() >> 4; sectionX <= box.getMaxX() >> 4; sectionX++) {
+                for (int sectionZ = box.getMinZ() >> 4; sectionZ <= box.getMaxZ() >> 4; sectionZ++) {
+                    WorldChunk chunk = world.getChunk(sectionX, sectionZ);
+                    ChunkSection[] sectionArray = chunk.getSectionArray();
+                    for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                        int index = world.sectionCoordToIndex(sectionY);
+                        if (index < 0 || index >= sectionArray.length) {
+                            continue;
+                        }
+                        ChunkSection section = sectionArray[index];
+                        if (section != null && !section.isEmpty()) {
+                            snapshot.sections.put(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ),
+                                section.getBlockStateContainer().copy());
+                        }
+                    }
+                }
+            }
+            return snapshot;
+        }
+
+        @Override
+        public BlockState getBlockState(int x, int y, int z) {
+            if (y < bottomY || y >= topY) {
+                return VOID_AIR; // Same as World.getBlockState outside the build height
+            }
+            PalettedContainer<BlockState> container = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+            return container != null ? container.get(x & 15, y & 15, z & 15) : AIR;
+        }
+    }
+}
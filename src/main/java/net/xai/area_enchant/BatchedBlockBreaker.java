@@ -1,5 +1,7 @@
 package net.xai.area_enchant;
 
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.enchantment.Enchantment;
@@ -19,8 +21,38 @@ import java.util.*;
 public class BatchedBlockBreaker {
     private static final Map<UUID, BreakingTask> activeTasks = new HashMap<>();
     
-    public static void startBreaking(ServerPlayerEntity player, ServerWorld world, List<BlockPos> blocks, 
+    // Round-robin order in which active tasks are served each tick
+    // The player served first this tick is served last next tick, so nobody is always first in line
+    private static final ArrayDeque<UUID> schedule = new ArrayDeque<>();
+    
+    // Scheduler stats from the most recent tick (read by commands/debugging, written only on the server thread)
+    private static long lastTickBudgetNanos = 0;
+    private static long lastTickUsedNanos = 0;
+    private static int lastTickBlocksBroken = 0;
+    private static int deferredBlocks = 0;
+    // Spent by first batches in startBreaking since the last tick() - taken out of that tick's budget
+    private static long startedSpentNanos = 0;
+    private static int startedBrokenBlocks = 0; // Blocks those first batches broke, for lastTickBlocksBroken
+    
+    /**
+     * Start (or restart) batched breaking for a player.
+     * The task takes ownership of blocks (positions packed with BlockPos.asLong, usually from
+     * PositionPool.acquireList()) and returns it to the pool when it finishes or is cancelled.
+     */
+    public static void startBreaking(ServerPlayerEntity player, ServerWorld world, LongArrayList blocks, 
                                     ItemStack tool, int level, PlayerDataManager.UndoData undoData) {
+        startBreaking(player, world, blocks, tool, level, undoData, null);
+    }
+    
+    /**
+     * Start breaking a plan that was selected from a snapshot (see AreaMinePlanner).
+     * With plannedFrom set, every block is re-checked against the selection filter right before it's
+     * broken, since the world may have changed between the snapshot and the break.
+     *
+     * @param plannedFrom state of the block that triggered the activation, or null for plans made on the live world
+     */
+    public static void startBreaking(ServerPlayerEntity player, ServerWorld world, LongArrayList blocks, 
+                                    ItemStack tool, int level, PlayerDataManager.UndoData undoData, BlockState plannedFrom) {
         // CRITICAL: Ensure flag is set BEFORE cancelling old task
         // This prevents race conditions where block break events fire between cancel and start
         // The flag should already be set by handleAreaMining(), but ensure it's set here too
@@ -42,33 +74,46 @@ public class BatchedBlockBreaker {
         // This prevents recursive calls from clearing valid undo data
         // CRITICAL: This also prevents ore vein mods from breaking connected ores and triggering new area mine events
         // that would overwrite the undo data
-        System.out.println("[Area Mine] [BATCHED] startBreaking called with undo data: " + 
-            (undoData != null ? undoData.blocks.size() + " blocks" : "null"));
-        if (AreaEnchantMod.config.enableUndo && undoData != null && !undoData.blocks.isEmpty()) {
+        PlayerDataManager.UndoData newUndo = undoData;
+        AreaMineLog.debug("BATCHED", () -> "startBreaking called with undo data: " + 
+            (newUndo != null ? newUndo.size() + " blocks" : "null"));
+        if (AreaEnchantMod.config.enableUndo && undoData != null && !undoData.isEmpty()) {
             // Check if undo data already exists - if so, don't overwrite it
             PlayerDataManager.UndoData existingUndo = PlayerDataManager.getUndoData(player.getUuid());
-            if (existingUndo != null && !existingUndo.blocks.isEmpty()) {
-                System.err.println("[Area Mine] [BATCHED] WARNING: Undo data already exists (" + existingUndo.blocks.size() + 
-                    " blocks), NOT overwriting. New data has " + undoData.blocks.size() + " blocks");
-                System.err.println("[Area Mine] [BATCHED] WARNING: This might be caused by ore vein mod breaking connected ores!");
+            if (existingUndo != null && !existingUndo.isEmpty()) {
+                // Usually an ore vein mod breaking connected ores and re-triggering area mining
+                AreaMineLog.debug("BATCHED", () -> "Undo data already exists (" + existingUndo.size() + 
+                    " blocks), NOT overwriting. New data has " + newUndo.size() + " blocks");
                 // CRITICAL: Use the existing undo data instead - don't overwrite it
                 // This prevents ore vein mods from clearing undo data
                 undoData = existingUndo;
             } else {
-                System.out.println("[Area Mine] [BATCHED] Saving undo data: " + undoData.blocks.size() + " blocks");
+                AreaMineLog.debug("BATCHED", () -> "Saving undo data: " + newUndo.size() + " blocks");
                 PlayerDataManager.setUndoData(player.getUuid(), undoData);
             }
-        } else {
-            System.err.println("[Area Mine] [BATCHED] WARNING: Not saving undo data in startBreaking! enableUndo=" + 
-                AreaEnchantMod.config.enableUndo + ", undoData=" + (undoData != null ? undoData.blocks.size() + " blocks" : "null"));
+        } else if (AreaEnchantMod.config.enableUndo) {
+            AreaMineLog.debug("BATCHED", () -> "Not saving undo data in startBreaking, undoData=" + 
+                (newUndo != null ? newUndo.size() + " blocks" : "null"));
         }
         
         // Create new breaking task
-        BreakingTask task = new BreakingTask(player, world, blocks, tool, level, undoData);
+        BreakingTask task = new BreakingTask(player, world, blocks, tool, level, undoData, plannedFrom);
         activeTasks.put(player.getUuid(), task);
+        if (!schedule.contains(player.getUuid())) {
+            schedule.addLast(player.getUuid());
+        }
         
-        // Start processing
-        task.processNextBatch();
+        // Start processing right away with a fair share of what's left of this tick's budget
+        // CRITICAL: The time is charged to the shared budget - tick() only gets what remains, so many
+        // activations in one tick can't each add a slice on top of it
+        // Whatever doesn't fit is carried over to the next tick()
+        long start = System.nanoTime();
+        long remainingBudget = Math.max(0L, getTickBudgetNanos() - startedSpentNanos);
+        int broken = task.processNextBatch(start + remainingBudget / activeTasks.size());
+        startedSpentNanos += System.nanoTime() - start;
+        startedBrokenBlocks += broken;
+        // tick() only reports its own batches - small activations can be done before it runs
+        MiningMetrics.addBlocksBroken(broken);
     }
     
     public static void cancelTask(UUID playerId) {
@@ -81,63 +126,165 @@ public class BatchedBlockBreaker {
         }
     }
     
+    /**
+     * Run one tick of the scheduler.
+     * All active tasks share a single nanosecond budget (config.tickBudgetMicros) instead of each
+     * breaking blocksPerTick blocks regardless of load. The budget is split evenly across the tasks
+     * still waiting this tick, so time a fast task doesn't use rolls over to the ones after it.
+     * Time already spent by tasks started this tick (startBreaking) comes out of the same budget.
+     * Every task breaks at least one block per tick so nobody starves; the rest is deferred.
+     */
     public static void tick() {
-        List<UUID> toRemove = new ArrayList<>();
+        long budget = getTickBudgetNanos();
+        long startedSpent = startedSpentNanos;
+        startedSpentNanos = 0;
+        int startedBroken = startedBrokenBlocks;
+        startedBrokenBlocks = 0;
+        // Counting the started batches as if they ran at the beginning of this tick
+        long tickStart = System.nanoTime() - startedSpent;
+        int blocksBroken = 0;
+        int deferred = 0;
         
-        for (Map.Entry<UUID, BreakingTask> entry : activeTasks.entrySet()) {
-            BreakingTask task = entry.getValue();
+        int taskCount = schedule.size();
+        for (int served = 0; served < taskCount; served++) {
+            UUID playerId = schedule.pollFirst();
+            BreakingTask task = activeTasks.get(playerId);
+            if (task == null) {
+                continue; // Cancelled since it was scheduled
+            }
+            
+            if (!task.isFinished()) {
+                long remainingBudget = budget - (System.nanoTime() - tickStart);
+                long slice = Math.max(0L, remainingBudget / (taskCount - served));
+                blocksBroken += task.processNextBatch(System.nanoTime() + slice);
+            }
+            
             if (task.isFinished()) {
                 task.finish();
-                toRemove.add(entry.getKey());
+                activeTasks.remove(playerId);
             } else {
-                task.processNextBatch();
+                deferred += task.getRemainingBlocks();
+                schedule.addLast(playerId);
             }
         }
         
-        toRemove.forEach(activeTasks::remove);
+        // Rotate so the task served first this tick goes last next tick
+        if (schedule.size() > 1) {
+            schedule.addLast(schedule.pollFirst());
+        }
+        
+        lastTickBudgetNanos = budget;
+        lastTickUsedNanos = System.nanoTime() - tickStart;
+        lastTickBlocksBroken = startedBroken + blocksBroken;
+        deferredBlocks = deferred;
+        MiningMetrics.addBlocksBroken(blocksBroken);
+    }
+    
+    private static long getTickBudgetNanos() {
+        return Math.max(0L, AreaEnchantMod.config.tickBudgetMicros) * 1000L;
+    }
+    
+    /** Budget the scheduler had in the last tick, in nanoseconds. */
+    public static long getLastTickBudgetNanos() {
+        return lastTickBudgetNanos;
+    }
+    
+    /** Time the scheduler actually spent breaking blocks in the last tick, in nanoseconds. */
+    public static long getLastTickUsedNanos() {
+        return lastTickUsedNanos;
+    }
+    
+    /** Blocks broken across all tasks in the last tick. */
+    public static int getLastTickBlocksBroken() {
+        return lastTickBlocksBroken;
+    }
+    
+    /** Blocks still queued after the last tick (carried over to the next one). */
+    public static int getDeferredBlocks() {
+        return deferredBlocks;
+    }
+    
+    public static int getActiveTaskCount() {
+        return activeTasks.size();
+    }
+    
+    /** Convert per-Block counts to the block id keys used by stats and blockValues. */
+    public static Map<String, Integer> toBlockIdCounts(Map<Block, Integer> blockCounts) {
+        Map<String, Integer> idCounts = new HashMap<>(blockCounts.size() * 2);
+        for (Map.Entry<Block, Integer> entry : blockCounts.entrySet()) {
+            idCounts.merge(net.minecraft.registry.Registries.BLOCK.getId(entry.getKey()).toString(), entry.getValue(), Integer::sum);
+        }
+        return idCounts;
     }
     
     public static class BreakingTask {
         private final ServerPlayerEntity player;
         private final ServerWorld world;
-        private final List<BlockPos> blocks;
+        private final LongArrayList blocks; // Packed positions, owned by this task until released
         private final ItemStack tool;
         private final int enchantmentLevel;
         private final PlayerDataManager.UndoData undoData;
+        private final BlockState plannedFrom; // Non-null when blocks came from a snapshot and must be revalidated
         private int currentIndex = 0;
         private boolean cancelled = false;
+        private boolean finished = false;
+        private boolean blocksReleased = false;
         private int blocksMined = 0;
         private final long startTime;
         private final String dimensionId;
-        private final Map<String, Integer> blockCounts = new HashMap<>();
+        // Keyed by Block while breaking - converted to id strings once in finish()
+        private final Map<Block, Integer> blockCounts = new HashMap<>();
+        // World drops of the whole activation, spawned merged when the task ends (null = spawn per block)
+        private final DropAggregator worldDrops = AreaEnchantMod.config.aggregateDrops ? new DropAggregator() : null;
+        // Positions this task set to air with deferred updates, across all batches (pooled, acquired on first use)
+        private LongOpenHashSet removedPositions = null;
         
-        public BreakingTask(ServerPlayerEntity player, ServerWorld world, List<BlockPos> blocks, 
+        public BreakingTask(ServerPlayerEntity player, ServerWorld world, LongArrayList blocks, 
                           ItemStack tool, int enchantmentLevel, PlayerDataManager.UndoData undoData) {
+            this(player, world, blocks, tool, enchantmentLevel, undoData, null);
+        }
+        
+        public BreakingTask(ServerPlayerEntity player, ServerWorld world, LongArrayList blocks, 
+                          ItemStack tool, int enchantmentLevel, PlayerDataManager.UndoData undoData,
+                          BlockState plannedFrom) {
             this.player = player;
             this.world = world;
             this.blocks = blocks;
             this.tool = tool;
             this.enchantmentLevel = enchantmentLevel;
             this.undoData = undoData;
+            this.plannedFrom = plannedFrom;
             this.startTime = world.getTime();
             this.dimensionId = world.getRegistryKey().getValue().toString();
         }
         
-        public void processNextBatch() {
+        /**
+         * Break blocks until the deadline passes, blocksPerTick is reached or the task runs out of blocks.
+         * At least one block is always broken so a task can't be starved by an exhausted budget.
+         *
+         * @param deadlineNanos System.nanoTime() value after which no further blocks are broken this tick
+         * @return number of blocks actually broken
+         */
+        public int processNextBatch(long deadlineNanos) {
+            if (finished) {
+                return 0; // Already finished - blocks may have been handed to another task
+            }
             if (cancelled) {
                 // If cancelled, finish() should have been called by cancelTask()
                 // But if we get here, it means tick() found a cancelled task, so finish it
                 finish();
-                return;
+                return 0;
             }
             
             // CRITICAL: Check if we're already done BEFORE processing
             if (currentIndex >= blocks.size()) {
                 finish();
-                return;
+                return 0;
             }
             
-            // Continue processing until all blocks are broken or we hit the per-tick limit
+            MiningMetrics.Span batchSpan = MiningMetrics.begin(MiningMetrics.Stage.BATCH);
+            
+            // Continue processing until all blocks are broken, the time slice is used up or we hit the per-tick cap
             int batchSize = AreaEnchantMod.config.blocksPerTick;
             int processedThisTick = 0;
             
@@ -162,173 +309,144 @@ public class BatchedBlockBreaker {
             
             boolean autoPickup = AreaEnchantMod.config.autoPickup || playerData.hasUpgrade("auto_pickup");
             
-            // Process blocks until we hit the batch size limit or run out of blocks
-            // CRITICAL: Only count successfully broken blocks towards the batch limit
-            // This ensures we actually break the intended number of blocks, not just process them
-            while (currentIndex < blocks.size() && processedThisTick < batchSize) {
-                int i = currentIndex;
-                BlockPos otherPos = blocks.get(i);
-                BlockState blockState = world.getBlockState(otherPos);
+            // Air writes for this batch - neighbour updates are sent together after the loop
+            BlockRemovalBatch removal = new BlockRemovalBatch(world, AreaEnchantMod.config.deferNeighborUpdates,
+                removedPositions());
+            DropAggregator pickup = new DropAggregator();
+            
+            // Deferred updates still go out if a block throws mid-loop, and the pooled lists go back
+            try {
+                // Process blocks until we hit the batch size limit or run out of blocks
+                // CRITICAL: Only count successfully broken blocks towards the batch limit
+                // This ensures we actually break the intended number of blocks, not just process them
+                while (currentIndex < blocks.size() && processedThisTick < batchSize) {
+                    if (processedThisTick > 0 && System.nanoTime() - deadlineNanos >= 0) {
+                        break; // Out of time for this tick - the rest is deferred
+                    }
+                    int i = currentIndex;
+                    long packedPos = blocks.getLong(i);
+                    BlockPos otherPos = BlockPos.fromLong(packedPos);
+                    BlockState blockState = world.getBlockState(otherPos);
                 
-                // CRITICAL: Always increment currentIndex to move to next block
-                // But only increment processedThisTick if we actually broke a block
-                currentIndex++;
+                    // CRITICAL: Always increment currentIndex to move to next block
+                    // But only increment processedThisTick if we actually broke a block
+                    currentIndex++;
                 
-                if (blockState.isAir()) {
-                    continue; // Skip air blocks, don't count towards batch limit
-                }
+                    if (blockState.isAir()) {
+                        continue; // Skip air blocks, don't count towards batch limit
+                    }
                 
-                String blockId = net.minecraft.registry.Registries.BLOCK.getId(blockState.getBlock()).toString();
+                    Block block = blockState.getBlock();
                 
-                // Final safety check: Never break unbreakable blocks (bedrock, etc.)
-                // This is a redundant check since we already filtered, but extra safety
-                float hardness = blockState.getHardness(world, otherPos);
-                if (hardness < 0 || blockId.equals("minecraft:bedrock") || 
-                    AreaEnchantMod.config.blockBlacklist.contains(blockId)) {
-                    continue; // Skip unbreakable blocks, don't count towards batch limit
-                }
+                    // Final safety check: Never break unbreakable blocks (bedrock, etc.)
+                    // This is a redundant check since we already filtered, but extra safety
+                    if (BlockClassifier.isProtected(blockState)) {
+                        continue; // Skip unbreakable blocks, don't count towards batch limit
+                    }
                 
-                // Store for undo if enabled - CRITICAL: Save BEFORE breaking
-                // NOTE: Blocks should already be pre-added in AreaMineHandler, but add here as backup
-                if (AreaEnchantMod.config.enableUndo && undoData != null) {
-                    // Check if block is already in undo data (it should be pre-added)
-                    boolean alreadyAdded = undoData.blocks.stream().anyMatch(b -> b.pos.equals(otherPos));
-                    if (!alreadyAdded) {
-                        // CRITICAL: Get the block state RIGHT BEFORE breaking - this is critical for ores
-                        // Ore vein mods might have modified the block state between when we pre-added it and now
-                        // By getting the state right before breaking, we ensure we have the correct state
-                        // This is especially important if other mods process block break events and modify blocks
-                        BlockState stateToSave = world.getBlockState(otherPos);
-                        
-                        // CRITICAL: For ores, make sure we're getting the full state with all properties
-                        // Some ores have properties that need to be preserved (like deepslate_iron_ore vs iron_ore)
-                        // If an ore vein mod modified the block, we want to save the CURRENT state, not the old one
-                        undoData.addBlock(otherPos, stateToSave);
-                    } else {
-                        // Block is already in undo data, but CRITICAL: Re-check state if it's an ore
-                        // Ore vein mods might have modified the block state after we saved it
-                        // For ores, we should update the saved state to match the current state
-                        String currentBlockId = net.minecraft.registry.Registries.BLOCK.getId(blockState.getBlock()).toString();
-                        boolean isOre = currentBlockId.contains("_ore") || 
-                                       (currentBlockId.contains("deepslate") && (currentBlockId.contains("ore") || currentBlockId.contains("_ore")));
+                    // Snapshot plans: the block may have changed since it was selected - apply the filter again
+                    if (plannedFrom != null && !AreaMinePlanner.shouldMine(blockState, plannedFrom)) {
+                        continue;
+                    }
+                
+                    // Store for undo if enabled - CRITICAL: Save BEFORE breaking
+                    // NOTE: Blocks should already be pre-added in AreaMineHandler, but add here as backup
+                    if (AreaEnchantMod.config.enableUndo && undoData != null) {
+                        // Check if block is already in undo data (it should be pre-added)
+                        BlockState savedState = undoData.getState(packedPos);
+                        if (savedState == null) {
+                            // CRITICAL: Get the block state RIGHT BEFORE breaking - this is critical for ores
+                            // Ore vein mods might have modified the block state between when we pre-added it and now
+                            // By getting the state right before breaking, we ensure we have the correct state
+                            // This is especially important if other mods process block break events and modify blocks
+                            BlockState stateToSave = world.getBlockState(otherPos);
                         
-                        if (isOre) {
-                            // For ores, re-check the state right before breaking
-                            // This ensures we have the correct state even if an ore vein mod modified it
-                            BlockState currentState = world.getBlockState(otherPos);
-                            // Update the saved state if it's different
-                            undoData.blocks.stream()
-                                .filter(b -> b.pos.equals(otherPos))
-                                .findFirst()
-                                .ifPresent(b -> b.state = currentState);
+                            // CRITICAL: For ores, make sure we're getting the full state with all properties
+                            // Some ores have properties that need to be preserved (like deepslate_iron_ore vs iron_ore)
+                            // If an ore vein mod modified the block, we want to save the CURRENT state, not the old one
+                            undoData.addBlock(otherPos, stateToSave);
+                        } else if (plannedFrom != null && savedState != blockState) {
+                            // Saved from the planning snapshot, but the block changed since - keep what we actually break
+                            undoData.setState(packedPos, blockState);
+                        } else {
+                            // Block is already in undo data, but CRITICAL: Re-check state if it's an ore
+                            // Ore vein mods might have modified the block state after we saved it
+                            // For ores, we should update the saved state to match the current state
+                            if (BlockClassifier.isVeinOre(blockState)) {
+                                // For ores, re-check the state right before breaking
+                                // This ensures we have the correct state even if an ore vein mod modified it
+                                // Update the saved state if it's different
+                                undoData.setState(packedPos, world.getBlockState(otherPos));
+                            }
                         }
                     }
-                }
                 
-                // Break blocks directly - use breakBlock which properly handles block breaking
-                // Get drops with enchantments (Fortune, Silk Touch, etc.) BEFORE breaking
-                List<ItemStack> drops = new ArrayList<>();
-                if (!player.isCreative()) {
-                    drops.addAll(Block.getDroppedStacks(blockState, world, otherPos, 
-                        world.getBlockEntity(otherPos), player, tool));
-                }
-                
-                // CRITICAL: Break block using setBlockState with air to avoid triggering block break events
-                // This is the safest way to remove blocks without triggering PlayerBlockBreakEvents
-                // Flag 3 = NOTIFY_NEIGHBORS | NOTIFY_LISTENERS (but won't trigger PlayerBlockBreakEvents)
-                boolean broken = false;
-                BlockState stateBeforeBreak = world.getBlockState(otherPos);
+                    // Break blocks directly - use breakBlock which properly handles block breaking
+                    // Get drops with enchantments (Fortune, Silk Touch, etc.) BEFORE breaking
+                    List<ItemStack> drops = new ArrayList<>();
+                    if (!player.isCreative()) {
+                        drops.addAll(Block.getDroppedStacks(blockState, world, otherPos, 
+                            world.getBlockEntity(otherPos), player, tool));
+                    }
                 
-                // Verify the block is still there and matches what we expect
-                if (!stateBeforeBreak.isAir() && net.minecraft.registry.Registries.BLOCK.getId(stateBeforeBreak.getBlock()).toString().equals(blockId)) {
-                    // Set block to air directly (flag 3 = notify neighbors and listeners, but won't trigger PlayerBlockBreakEvents)
-                    // This is the safest way to remove blocks programmatically
-                    world.setBlockState(otherPos, net.minecraft.block.Blocks.AIR.getDefaultState(), 3);
+                    // CRITICAL: Break block using setBlockState with air to avoid triggering block break events
+                    // This is the safest way to remove blocks without triggering PlayerBlockBreakEvents
+                    // With deferNeighborUpdates, neighbour updates are only sent at the edge of the mined volume
+                    boolean broken = false;
+                    BlockState stateBeforeBreak = world.getBlockState(otherPos);
                 
-                    // Verify it's actually removed
-                    BlockState stateAfterBreak = world.getBlockState(otherPos);
-                    if (stateAfterBreak.isAir()) {
-                        broken = true;
+                    // Verify the block is still there and matches what we expect
+                    if (!stateBeforeBreak.isAir() && stateBeforeBreak.getBlock() == block) {
+                        // Set block to air directly and verify it's actually removed
+                        broken = removal.remove(otherPos, stateBeforeBreak);
+                        if (!broken) {
+                            AreaMineLog.warn("BATCHED", () -> "setBlockState failed! Block still there: " + 
+                                net.minecraft.registry.Registries.BLOCK.getId(world.getBlockState(otherPos).getBlock()));
+                        }
                     } else {
-                        System.err.println("[Area Mine] WARNING: setBlockState failed! Block still there: " + 
-                            net.minecraft.registry.Registries.BLOCK.getId(stateAfterBreak.getBlock()));
                         broken = false;
                     }
-                } else {
-                    broken = false;
-                }
                 
-                if (broken) {
-                    // Trigger block break events and drops manually
-                    blockState.onStacksDropped(world, otherPos, tool, !player.isCreative());
+                    if (broken) {
+                        // Trigger block break events and drops manually
+                        blockState.onStacksDropped(world, otherPos, tool, !player.isCreative());
                     
-                    blocksMined++;
-                    String blockIdStr = blockId;
-                    blockCounts.put(blockIdStr, blockCounts.getOrDefault(blockIdStr, 0) + 1);
-                    processedThisTick++; // CRITICAL: Only count successfully broken blocks towards batch limit
+                        blocksMined++;
+                        blockCounts.merge(block, 1, Integer::sum);
+                        processedThisTick++; // CRITICAL: Only count successfully broken blocks towards batch limit
                     
-                    // Handle drops (auto-pickup or drop in world)
-                if (!player.isCreative()) {
-                    for (ItemStack drop : drops) {
-                        if (autoPickup) {
-                                ItemStack originalDrop = drop.copy();
-                                int originalCount = originalDrop.getCount();
-                                
-                                // Try to insert - this modifies drop in place
-                                boolean fullyInserted = player.getInventory().insertStack(drop);
-                                
-                                if (fullyInserted) {
-                                    // All items were added to inventory
-                                    if (AreaEnchantMod.config.enableUndo && undoData != null) {
-                                        String itemId = net.minecraft.registry.Registries.ITEM.getId(originalDrop.getItem()).toString();
-                                        undoData.addInventoryItem(itemId, originalCount);
-                                    }
+                        // Handle drops (auto-pickup or drop in world)
+                        // Auto-pickup drops are collected and inserted together after the loop
+                        if (!player.isCreative()) {
+                            for (ItemStack drop : drops) {
+                                if (autoPickup) {
+                                    pickup.add(drop, otherPos);
                                 } else {
-                                    // Some or all items couldn't fit - drop the remainder
-                                    int insertedCount = originalCount - drop.getCount();
-                                    int droppedCount = drop.getCount();
-                                    
-                                    // Track what was inserted
-                                    if (insertedCount > 0 && AreaEnchantMod.config.enableUndo && undoData != null) {
-                                        String itemId = net.minecraft.registry.Registries.ITEM.getId(originalDrop.getItem()).toString();
-                                        undoData.addInventoryItem(itemId, insertedCount);
-                                    }
-                                    
-                                    // Drop the remainder
-                                    if (droppedCount > 0) {
-                                        net.minecraft.entity.ItemEntity itemEntity = new net.minecraft.entity.ItemEntity(
-                                            world, otherPos.getX() + 0.5, otherPos.getY() + 0.5, otherPos.getZ() + 0.5, drop);
-                                        world.spawnEntity(itemEntity);
-                                        // Track dropped item entity for undo
-                                        if (AreaEnchantMod.config.enableUndo && undoData != null) {
-                                            undoData.addItemEntity(itemEntity.getUuid());
-                                        }
-                                    }
+                                    dropInWorld(drop, otherPos);
+                                }
                             }
-                        } else {
-                                // Drop item in world
-                                net.minecraft.entity.ItemEntity itemEntity = new net.minecraft.entity.ItemEntity(
-                                    world, otherPos.getX() + 0.5, otherPos.getY() + 0.5, otherPos.getZ() + 0.5, drop);
-                                world.spawnEntity(itemEntity);
-                                // Track dropped item entity for undo
-                                if (AreaEnchantMod.config.enableUndo && undoData != null) {
-                                    undoData.addItemEntity(itemEntity.getUuid());
                         }
+                    } else {
+                        // Block couldn't be broken - log it but continue
+                        // CRITICAL: Don't count failed breaks towards batch limit
+                        BlockState currentState = world.getBlockState(otherPos);
+                        // If block is already air, that's fine - it was probably broken by something else
+                        // But if it's still the same block, that's a problem
+                        if (!currentState.isAir() && currentState.getBlock() == block) {
+                            AreaMineLog.warn("BATCHED", () -> "Block at " + otherPos + " failed to break! This should not happen!");
+                        }
+                        // Don't increment processedThisTick - failed breaks don't count towards batch limit
                     }
                 }
-                    }
-                } else {
-                    // Block couldn't be broken - log it but continue
-                    // CRITICAL: Don't count failed breaks towards batch limit
-                    BlockState currentState = world.getBlockState(otherPos);
-                    String currentBlockId = net.minecraft.registry.Registries.BLOCK.getId(currentState.getBlock()).toString();
-                    // If block is already air, that's fine - it was probably broken by something else
-                    // But if it's still the same block, that's a problem
-                    if (!currentState.isAir() && currentBlockId.equals(blockId)) {
-                        System.err.println("[Area Mine] CRITICAL: Block at " + otherPos + " failed to break! This should not happen!");
-                    }
-                    // Don't increment processedThisTick - failed breaks don't count towards batch limit
-                }
+            } finally {
+                removal.finish();
+            }
+            
+            // One pass over the inventory for all auto-pickup drops of the batch - what doesn't fit drops in the world
+            if (!pickup.isEmpty()) {
+                MiningMetrics.Span dropSpan = MiningMetrics.begin(MiningMetrics.Stage.DROPS);
+                pickup.insertInto(player.getInventory(), AreaEnchantMod.config.enableUndo ? undoData : null, this::dropInWorld);
+                dropSpan.end(processedThisTick);
             }
             
             // Apply durability ONCE for this batch (not per block!)
@@ -365,13 +483,27 @@ public class BatchedBlockBreaker {
                 // processedThisTick is only incremented when blocks are successfully broken
             }
             
+            batchSpan.end(processedThisTick);
+            
             // If we've processed all blocks, finish
             if (currentIndex >= blocks.size()) {
                 finish();
             }
+            
+            return processedThisTick;
         }
         
         private void finish() {
+            // finish() can be reached from both processNextBatch() and tick() - only run it once
+            // so stats, tokens and feedback aren't applied twice
+            if (finished) {
+                return;
+            }
+            finished = true;
+            MiningMetrics.Span finishSpan = MiningMetrics.begin(MiningMetrics.Stage.FINISH);
+            releaseBlocks();
+            spawnDrops();
+            
             // CRITICAL: Clear the isBreakingArea flag FIRST to prevent re-entry
             // This must be done before any other operations to prevent block break events
             // from triggering new area mine events while we're still processing
@@ -379,36 +511,30 @@ public class BatchedBlockBreaker {
             
             // CRITICAL: Save undo data FIRST, before updating stats
             // This ensures undo data is always saved, even if stats update fails
-            System.out.println("[Area Mine] [BATCHED] finish() called, undo data: " + 
-                (undoData != null ? undoData.blocks.size() + " blocks" : "null"));
-            if (AreaEnchantMod.config.enableUndo && undoData != null && !undoData.blocks.isEmpty()) {
+            AreaMineLog.debug("BATCHED", () -> "finish() called, undo data: " + 
+                (undoData != null ? undoData.size() + " blocks" : "null"));
+            if (AreaEnchantMod.config.enableUndo && undoData != null && !undoData.isEmpty()) {
                 // Save to storage
-                System.out.println("[Area Mine] [BATCHED] Saving undo data in finish(): " + undoData.blocks.size() + " blocks");
                 PlayerDataManager.setUndoData(player.getUuid(), undoData);
                 
                 // Immediately verify it was saved
                 PlayerDataManager.UndoData verifyData = PlayerDataManager.getUndoData(player.getUuid());
                 if (verifyData == null) {
-                    System.err.println("[Area Mine] [BATCHED] CRITICAL: Undo data was NOT saved! Retrying...");
+                    AreaMineLog.warn("BATCHED", "Undo data was NOT saved! Retrying...");
                     // Retry saving
                     PlayerDataManager.setUndoData(player.getUuid(), undoData);
-                    verifyData = PlayerDataManager.getUndoData(player.getUuid());
-                    if (verifyData == null) {
-                        System.err.println("[Area Mine] [BATCHED] CRITICAL: Undo data save FAILED after retry!");
-                    } else {
-                        System.out.println("[Area Mine] [BATCHED] Undo data saved successfully after retry: " + verifyData.blocks.size() + " blocks");
+                    if (PlayerDataManager.getUndoData(player.getUuid()) == null) {
+                        AreaMineLog.error("BATCHED", "Undo data save FAILED after retry!");
                     }
-                } else {
-                    System.out.println("[Area Mine] [BATCHED] Undo data verified: " + verifyData.blocks.size() + " blocks");
                 }
-            } else if (AreaEnchantMod.config.enableUndo && (undoData == null || undoData.blocks.isEmpty())) {
-                System.err.println("[Area Mine] [BATCHED] WARNING: Undo data not saved in finish()! enableUndo=" + 
-                    AreaEnchantMod.config.enableUndo + ", undoData=" + (undoData != null ? "exists" : "null") + 
-                    ", blocks=" + (undoData != null ? undoData.blocks.size() : 0));
+            } else if (AreaEnchantMod.config.enableUndo) {
+                AreaMineLog.debug("BATCHED", () -> "Undo data not saved in finish(), undoData=" + 
+                    (undoData != null ? "empty" : "null"));
             }
             
             if (blocksMined > 0) {
                 PlayerDataManager.PlayerData playerData = PlayerDataManager.get(player.getUuid());
+                Map<String, Integer> blockIdCounts = toBlockIdCounts(blockCounts);
                 
                 // Update stats
                 playerData.addBlocksMined(blocksMined);
@@ -418,7 +544,7 @@ public class BatchedBlockBreaker {
                     ? enchReg.get().getEntry(AreaEnchantMod.AREA_MINE.getValue()).orElse(null)
                     : null;
                 if (areaMineEntry != null && EnchantmentHelper.getLevel(areaMineEntry, tool) > 0) {
-                    for (Map.Entry<String, Integer> entry : blockCounts.entrySet()) {
+                    for (Map.Entry<String, Integer> entry : blockIdCounts.entrySet()) {
                         playerData.addBlockTypeStats(entry.getKey(), entry.getValue());
                     }
                 }
@@ -431,7 +557,7 @@ public class BatchedBlockBreaker {
                 // Calculate and award tokens (no tokens in simple mode)
                 int tokensEarned = 0;
                 if (AreaEnchantMod.config.enableUpgradeSystem && !AreaEnchantMod.config.simpleMode) {
-                    tokensEarned = calculateTokensFromBlocks(blockCounts);
+                    tokensEarned = calculateTokensFromBlocks(blockIdCounts);
                     
                     // Get Efficiency level
                     int efficiencyLevel = 0;
@@ -476,6 +602,31 @@ public class BatchedBlockBreaker {
                     player.sendMessage(Text.literal(feedbackMessage), false);
                 }
             }
+            finishSpan.end(blocksMined);
+        }
+        
+        private void dropInWorld(ItemStack drop, BlockPos pos) {
+            if (worldDrops != null) {
+                worldDrops.add(drop, pos);
+                return;
+            }
+            net.minecraft.entity.ItemEntity itemEntity = new net.minecraft.entity.ItemEntity(
+                world, pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5, drop);
+            world.spawnEntity(itemEntity);
+            // Track dropped item entity for undo
+            if (AreaEnchantMod.config.enableUndo && undoData != null) {
+                undoData.addItemEntity(itemEntity.getUuid());
+            }
+        }
+        
+        // Spawn the aggregated drops - before undo data is saved, so it includes their UUIDs
+        private void spawnDrops() {
+            if (worldDrops != null && !worldDrops.isEmpty()) {
+                MiningMetrics.Span dropSpan = MiningMetrics.begin(MiningMetrics.Stage.DROPS);
+                int spawned = worldDrops.spawn(world, AreaEnchantMod.config.enableUndo ? undoData : null);
+                dropSpan.end(blocksMined);
+                AreaMineLog.debug("BATCHED", () -> "Spawned " + spawned + " merged item entities for " + blocksMined + " blocks");
+            }
         }
         
         private double getDurabilityMultiplier() {
@@ -489,12 +640,36 @@ public class BatchedBlockBreaker {
         
         public void cancel() {
             cancelled = true;
+            releaseBlocks();
+            spawnDrops(); // Whatever was broken before the cancel still drops
             // NOTE: finish() is called by cancelTask() after setting cancelled
             // This ensures the flag is cleared when a task is cancelled
         }
         
         public boolean isFinished() {
-            return cancelled || currentIndex >= blocks.size();
+            return cancelled || finished || currentIndex >= blocks.size();
+        }
+        
+        public int getRemainingBlocks() {
+            return blocksReleased ? 0 : blocks.size() - currentIndex;
+        }
+        
+        // Hand the position collections back to the pool - only once, they may be reused by the next activation
+        private void releaseBlocks() {
+            if (!blocksReleased) {
+                blocksReleased = true;
+                PositionPool.release(blocks);
+                PositionPool.release(removedPositions);
+                removedPositions = null;
+            }
+        }
+        
+        // Only needed when neighbour updates are deferred - BlockRemovalBatch ignores it otherwise
+        private LongOpenHashSet removedPositions() {
+            if (removedPositions == null && AreaEnchantMod.config.deferNeighborUpdates) {
+                removedPositions = PositionPool.acquireSet();
+            }
+            return removedPositions;
         }
         
         /**
@@ -0,0 +1,248 @@
+package net.xai.area_enchant;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.FluidBlock;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EmptyBlockView;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Precomputed block classification, indexed by BlockState raw id.
+ * Each state maps to a bitmask of traits, so the hot paths are one array lookup and a mask test
+ * instead of building the registry id string and running substring checks per block.
+ *
+ * Traits come from config.blockClassification (block tags, ids and wildcards - see {@link Matcher}),
+ * plus the block blacklist/whitelist. The config is compiled into the table on server start,
+ * /areamine reload and data pack reload (tags can change), never on the hot path.
+ */
+public class BlockClassifier {
+    public static final int ORE = 1;                   // BlockFilter "ores only" (ores, ancient debris, raw blocks...)
+    public static final int STONE = 1 << 1;
+    public static final int DIRT_GRAVEL = 1 << 2;
+    public static final int VALUABLE = 1 << 3;
+    public static final int PICKAXE_EFFECTIVE = 1 << 4;
+    public static final int LIQUID = 1 << 5;
+    public static final int UNBREAKABLE = 1 << 6;      // Hardness < 0 or configured (bedrock)
+    public static final int BLACKLISTED = 1 << 7;
+    public static final int WHITELISTED = 1 << 8;
+    public static final int VEIN_ORE = 1 << 9;         // Ores that ore vein mods break in connected groups
+    public static final int COMMON_MINING = 1 << 10;   // Stone-like blocks area mining always allows
+
+    // config.blockClassification key -> trait bit
+    private static final Map<String, Integer> TRAIT_NAMES = new LinkedHashMap<>();
+    static {
+        TRAIT_NAMES.put("ore", ORE);
+        TRAIT_NAMES.put("stone", STONE);
+        TRAIT_NAMES.put("dirt_gravel", DIRT_GRAVEL);
+        TRAIT_NAMES.put("valuable", VALUABLE);
+        TRAIT_NAMES.put("pickaxe_effective", PICKAXE_EFFECTIVE);
+        TRAIT_NAMES.put("liquid", LIQUID);
+        TRAIT_NAMES.put("unbreakable", UNBREAKABLE);
+        TRAIT_NAMES.put("vein_ore", VEIN_ORE);
+        TRAIT_NAMES.put("common_mining", COMMON_MINING);
+    }
+
+    // Swapped as a whole on rebuild so readers never see a half-built table
+    private static volatile int[] traits = null;
+
+    /**
+     * Rebuild the table from the block registry, its tags and the given config.
+     * Must run after all blocks are registered and tags are bound (server start), and whenever
+     * the config or data packs are reloaded.
+     */
+    public static void rebuild(AreaEnchantMod.Config config) {
+        long start = System.nanoTime();
+
+        List<Matcher> matchers = new ArrayList<>();
+        List<Integer> matcherTraits = new ArrayList<>();
+        if (config.blockClassification != null) {
+            for (Map.Entry<String, List<String>> entry : config.blockClassification.entrySet()) {
+                Integer trait = TRAIT_NAMES.get(entry.getKey());
+                if (trait == null) {
+                    AreaMineLog.warn("CLASSIFY", "Unknown block classification '" + entry.getKey() +
+                        "', expected one of " + TRAIT_NAMES.keySet());
+                    continue;
+                }
+                matchers.add(Matcher.compile(entry.getValue()));
+                matcherTraits.add(trait);
+            }
+        }
+        Matcher blacklist = Matcher.compile(config.blockBlacklist);
+        Matcher whitelist = Matcher.compile(config.blockWhitelist);
+
+        int[] table = new int[Block.STATE_IDS.size()];
+        for (Block block : Registries.BLOCK) {
+            RegistryEntry<Block> entry = block.getRegistryEntry();
+            Identifier id = Registries.BLOCK.getId(block);
+
+            // Tags and ids are per block - evaluate them once, then fan out to the block's states
+            int blockTraits = 0;
+            for (int i = 0; i < matchers.size(); i++) {
+                if (matchers.get(i).matches(entry, id)) {
+                    blockTraits |= matcherTraits.get(i);
+                }
+            }
+            if (block instanceof FluidBlock) {
+                blockTraits |= LIQUID;
+            }
+            if (blacklist.matches(entry, id)) {
+                blockTraits |= BLACKLISTED;
+            }
+            if (whitelist.matches(entry, id)) {
+                blockTraits |= WHITELISTED;
+            }
+
+            for (BlockState state : block.getStateManager().getStates()) {
+                int stateTraits = blockTraits;
+                if (state.getHardness(EmptyBlockView.INSTANCE, BlockPos.ORIGIN) < 0) {
+                    stateTraits |= UNBREAKABLE;
+                }
+                int rawId = Block.getRawIdFromState(state);
+                if (rawId >= 0 && rawId < table.length) {
+                    table[rawId] = stateTraits;
+                }
+            }
+        }
+
+        traits = table;
+        AreaMineLog.info("CLASSIFY", "Classified " + table.length + " block states in " +
+            ((System.nanoTime() - start) / 1_000_000) + "ms");
+    }
+
+    public static int getTraits(BlockState state) {
+        int[] table = traits;
+        if (table == null) {
+            // Queried before server start (shouldn't happen) - build with the current config
+            rebuild(AreaEnchantMod.config);
+            table = traits;
+        }
+        int rawId = Block.getRawIdFromState(state);
+        return rawId >= 0 && rawId < table.length ? table[rawId] : 0;
+    }
+
+    public static boolean hasAny(BlockState state, int mask) {
+        return (getTraits(state) & mask) != 0;
+    }
+
+    /** Ores in the ore vein sense (oreharvester-style connected breaking). */
+    public static boolean isVeinOre(BlockState state) {
+        return hasAny(state, VEIN_ORE);
+    }
+
+    /** Bedrock, negative hardness or blacklisted - never area-mined. */
+    public static boolean isProtected(BlockState state) {
+        return hasAny(state, UNBREAKABLE | BLACKLISTED);
+    }
+
+    /** Default config.blockClassification - tag driven so modded blocks are picked up without config. */
+    public static Map<String, List<String>> getDefaultClassification() {
+        Map<String, List<String>> defaults = new LinkedHashMap<>();
+        defaults.put("ore", new ArrayList<>(List.of(
+            "#c:ores", "minecraft:ancient_debris", "#c:storage_blocks/raw_iron", "#c:storage_blocks/raw_gold",
+            "#c:storage_blocks/raw_copper", "minecraft:glowstone")));
+        defaults.put("vein_ore", new ArrayList<>(List.of("#c:ores")));
+        defaults.put("stone", new ArrayList<>(List.of(
+            "#c:stones", "#c:cobblestones", "#minecraft:base_stone_overworld", "#minecraft:base_stone_nether",
+            "minecraft:end_stone")));
+        defaults.put("dirt_gravel", new ArrayList<>(List.of(
+            "#minecraft:dirt", "#minecraft:sand", "#c:sands", "#c:gravels", "minecraft:gravel")));
+        defaults.put("valuable", new ArrayList<>(List.of(
+            "#c:ores", "minecraft:ancient_debris", "#minecraft:beacon_base_blocks", "#c:storage_blocks/coal",
+            "#c:storage_blocks/redstone", "#c:storage_blocks/lapis", "#c:storage_blocks/copper",
+            "#c:storage_blocks/raw_iron", "#c:storage_blocks/raw_gold", "#c:storage_blocks/raw_copper",
+            "minecraft:quartz_block")));
+        // Gravel and glowstone aren't pickaxe-mineable in vanilla, but area mining has always taken them along
+        defaults.put("pickaxe_effective", new ArrayList<>(List.of(
+            "#minecraft:mineable/pickaxe", "minecraft:gravel", "minecraft:glowstone")));
+        // Skips the filters entirely - the wildcards keep the variants (bricks, tiles, sandstone...) the
+        // old name checks let through
+        defaults.put("common_mining", new ArrayList<>(List.of(
+            "#c:stones", "#c:cobblestones", "#minecraft:base_stone_overworld", "#minecraft:base_stone_nether",
+            "#c:obsidians", "minecraft:end_stone", "*stone*", "*deepslate*", "*netherrack*", "*basalt*",
+            "*obsidian*")));
+        defaults.put("unbreakable", new ArrayList<>(List.of("minecraft:bedrock")));
+        return defaults;
+    }
+
+    /**
+     * Compiled form of a list of block matchers from the config:
+     * "#namespace:path" matches a block tag, "namespace:path" an exact block id and anything
+     * containing '*' is a wildcard over the full id (e.g. "*_ore", "mymod:*").
+     */
+    static final class Matcher {
+        private final List<TagKey<Block>> tags = new ArrayList<>();
+        private final Set<Identifier> ids = new HashSet<>();
+        private final List<Pattern> wildcards = new ArrayList<>();
+
+        static Matcher compile(List<String> entries) {
+            Matcher matcher = new Matcher();
+            if (entries == null) {
+                return matcher;
+            }
+            for (String raw : entries) {
+                if (raw == null || raw.isBlank()) {
+                    continue;
+                }
+                String entry = raw.trim();
+                if (entry.startsWith("#")) {
+                    Identifier tagId = Identifier.tryParse(entry.substring(1));
+                    if (tagId != null) {
+                        matcher.tags.add(TagKey.of(RegistryKeys.BLOCK, tagId));
+                        continue;
+                    }
+                } else if (entry.contains("*")) {
+                    StringBuilder regex = new StringBuilder();
+                    for (String part : entry.split("\\*", -1)) {
+                        if (!regex.isEmpty()) {
+                            regex.append(".*");
+                        }
+                        regex.append(Pattern.quote(part));
+                    }
+                    matcher.wildcards.add(Pattern.compile(regex.toString()));
+                    continue;
+                } else {
+                    Identifier id = Identifier.tryParse(entry);
+                    if (id != null) {
+                        matcher.ids.add(id);
+                        continue;
+                    }
+                }
+                AreaMineLog.warn("CLASSIFY", "Ignoring invalid block matcher in config: " + raw);
+            }
+            return matcher;
+        }
+
+        boolean matches(RegistryEntry<Block> entry, Identifier id) {
+            if (ids.contains(id)) {
+                return true;
+            }
+            for (TagKey<Block> tag : tags) {
+                if (entry.isIn(tag)) {
+                    return true;
+                }
+            }
+            if (!wildcards.isEmpty()) {
+                String idString = id.toString();
+                for (Pattern wildcard : wildcards) {
+                    if (wildcard.matcher(idString).matches()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
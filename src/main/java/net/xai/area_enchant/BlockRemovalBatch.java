@@ -0,0 +1,105 @@
+package net.xai.area_enchant;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes the blocks of one breaking batch and sends their neighbour updates in bulk.
+ *
+ * With deferred updates, blocks are set to air without neighbour or shape updates
+ * (NOTIFY_LISTENERS | FORCE_STATE - clients are still told about the change). finish() then emits the
+ * updates only for removed blocks that touch something still standing, so the interior of a cube doesn't
+ * send six notifications per block to neighbours that are gone. A neighbour counts as gone when the task
+ * already removed it (in this or an earlier batch - batches are only blocksPerTick blocks) or it's air.
+ *
+ * One instance per processNextBatch call, on the server thread; always call finish(), also when the
+ * break loop throws.
+ */
+final class BlockRemovalBatch {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+    private static final int DEFERRED_FLAGS = Block.NOTIFY_LISTENERS | Block.FORCE_STATE;
+
+    private final ServerWorld world;
+    private final boolean deferUpdates;
+    private final LongArrayList removed;
+    private final LongOpenHashSet removedByTask; // Owned by the BreakingTask, spans all of its batches
+    private final List<Block> removedBlocks = new ArrayList<>(); // Parallel to removed - the block each position had
+
+    /**
+     * @param removedByTask positions the task has removed so far - added to here, required when deferUpdates
+     */
+    BlockRemovalBatch(ServerWorld world, boolean deferUpdates, LongOpenHashSet removedByTask) {
+        this.world = world;
+        this.deferUpdates = deferUpdates;
+        this.removed = deferUpdates ? PositionPool.acquireList() : null;
+        this.removedByTask = removedByTask;
+    }
+
+    /**
+     * Replace the block at pos with air.
+     * @param oldState the state being removed
+     * @return true if the position is air afterwards
+     */
+    boolean remove(BlockPos pos, BlockState oldState) {
+        if (!deferUpdates) {
+            // Flag 3 = NOTIFY_NEIGHBORS | NOTIFY_LISTENERS (but won't trigger PlayerBlockBreakEvents)
+            world.setBlockState(pos, AIR, Block.NOTIFY_ALL);
+            return world.getBlockState(pos).isAir();
+        }
+
+        world.setBlockState(pos, AIR, DEFERRED_FLAGS);
+        if (!world.getBlockState(pos).isAir()) {
+            return false;
+        }
+        long packedPos = pos.asLong();
+        removed.add(packedPos);
+        removedByTask.add(packedPos);
+        removedBlocks.add(oldState.getBlock());
+        return true;
+    }
+
+    /** Send the neighbour updates skipped by remove(), at the boundary of the removed volume only. */
+    void finish() {
+        if (!deferUpdates) {
+            return;
+        }
+        try {
+            for (int i = 0; i < removed.size(); i++) {
+                long packedPos = removed.getLong(i);
+                if (isBoundary(packedPos)) {
+                    // Same updates setBlockState(..., 3) would have sent: neighbour updates with the old block,
+                    // then shape updates (torches, fluids, grass...) from the new air state
+                    BlockPos pos = BlockPos.fromLong(packedPos); // Immutable - the neighbour updater may queue it
+                    world.updateNeighbors(pos, removedBlocks.get(i));
+                    AIR.updateNeighbors(world, pos, Block.NOTIFY_LISTENERS);
+                }
+            }
+        } finally {
+            PositionPool.release(removed);
+            removedBlocks.clear();
+        }
+    }
+
+    private boolean isBoundary(long packedPos) {
+        BlockPos.Mutable neighbor = new BlockPos.Mutable();
+        for (Direction direction : Direction.values()) {
+            long neighborPos = BlockPos.offset(packedPos, direction);
+            if (removedByTask.contains(neighborPos)) {
+                continue;
+            }
+            if (!world.getBlockState(neighbor.set(neighborPos)).isAir()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
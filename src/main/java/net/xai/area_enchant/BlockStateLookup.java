@@ -0,0 +1,21 @@
+package net.xai.area_enchant;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Read-only source of block states for selection passes.
+ * Implemented by SectionBlockReader (live world, tick thread) and SectionSnapshot
+ * (copied sections, safe on planner threads), so the selection code doesn't care which it gets.
+ */
+public interface BlockStateLookup {
+    BlockState getBlockState(int x, int y, int z);
+
+    default BlockState getBlockState(BlockPos pos) {
+        return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    default BlockState getBlockState(long packedPos) {
+        return getBlockState(BlockPos.unpackLongX(packedPos), BlockPos.unpackLongY(packedPos), BlockPos.unpackLongZ(packedPos));
+    }
+}
@@ -0,0 +1,209 @@
+package net.xai.area_enchant;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects the drops of one activation (or one batch, for batched auto-pickup) and hands them out merged.
+ *
+ * Identical stacks (same item and components) are added up across every block of the activation,
+ * then spawned as the fewest full stacks possible at one anchor per stack type - the mined block
+ * closest to the center of the blocks that dropped it (the center itself can be inside a block that
+ * wasn't mined, e.g. with a cross pattern or an ore filter). A 200-block stone activation leaves a
+ * handful of item entities instead of 200 that would otherwise merge over the next few seconds.
+ *
+ * For auto-pickup, insertInto() places a whole batch of drops with one pass over the inventory
+ * instead of an insertStack scan per drop.
+ *
+ * There are only a few distinct drop types per activation, so a list with a linear scan beats hashing
+ * stacks with components.
+ */
+public final class DropAggregator {
+    private final List<Group> groups = new ArrayList<>();
+
+    /** Add a drop that came out of the block at pos. The stack is copied, the caller keeps it. */
+    public void add(ItemStack drop, BlockPos pos) {
+        if (drop.isEmpty()) {
+            return;
+        }
+        Group group = null;
+        for (Group candidate : groups) {
+            if (ItemStack.areItemsAndComponentsEqual(candidate.prototype, drop)) {
+                group = candidate;
+                break;
+            }
+        }
+        if (group == null) {
+            group = new Group(drop.copyWithCount(1));
+            groups.add(group);
+        }
+        group.count += drop.getCount();
+        long packedPos = pos.asLong();
+        // A block with several drops of the same item adds them one after the other
+        if (group.sources.isEmpty() || group.sources.getLong(group.sources.size() - 1) != packedPos) {
+            group.sources.add(packedPos);
+            group.sumX += pos.getX();
+            group.sumY += pos.getY();
+            group.sumZ += pos.getZ();
+        }
+    }
+
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * Spawn everything collected so far and reset.
+     * @param undoData receives the UUID of every spawned entity, or null when undo is off
+     * @return number of item entities spawned
+     */
+    public int spawn(ServerWorld world, PlayerDataManager.UndoData undoData) {
+        int spawned = 0;
+        for (Group group : groups) {
+            BlockPos anchor = group.anchor();
+            double x = anchor.getX() + 0.5;
+            double y = anchor.getY() + 0.5;
+            double z = anchor.getZ() + 0.5;
+            int maxCount = group.prototype.getMaxCount();
+
+            long remaining = group.count;
+            while (remaining > 0) {
+                int count = (int) Math.min(maxCount, remaining);
+                remaining -= count;
+                ItemEntity itemEntity = new ItemEntity(world, x, y, z, group.prototype.copyWithCount(count));
+                itemEntity.setToDefaultPickupDelay();
+                world.spawnEntity(itemEntity);
+                spawned++;
+                // Track dropped item entity for undo
+                if (undoData != null) {
+                    undoData.addItemEntity(itemEntity.getUuid());
+                }
+            }
+        }
+        groups.clear();
+        return spawned;
+    }
+
+    /**
+     * Insert everything collected so far into the inventory and reset.
+     * Existing stacks are topped up first (main inventory and offhand, like insertStack), then empty main
+     * slots are filled - two passes over the slots for the whole batch, whatever the number of drops.
+     *
+     * @param undoData  receives the inserted count per item id, or null when undo is off
+     * @param leftovers gets what didn't fit, in stacks, with the block position to drop it at
+     */
+    public void insertInto(PlayerInventory inventory, PlayerDataManager.UndoData undoData, BiConsumer<ItemStack, BlockPos> leftovers) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        long[] remaining = new long[groups.size()];
+        for (int g = 0; g < remaining.length; g++) {
+            remaining[g] = groups.get(g).count;
+        }
+
+        boolean changed = false;
+        for (int pass = 0; pass < 2; pass++) {
+            boolean topUp = pass == 0;
+            // Main slots, then the offhand (top-up pass only - new stacks never go to the offhand)
+            int slotCount = topUp ? PlayerInventory.MAIN_SIZE + 1 : PlayerInventory.MAIN_SIZE;
+            for (int i = 0; i < slotCount; i++) {
+                int slot = i < PlayerInventory.MAIN_SIZE ? i : PlayerInventory.OFF_HAND_SLOT;
+                ItemStack slotStack = inventory.getStack(slot);
+                if (topUp == slotStack.isEmpty()) {
+                    continue;
+                }
+                for (int g = 0; g < remaining.length; g++) {
+                    if (remaining[g] == 0) {
+                        continue;
+                    }
+                    ItemStack prototype = groups.get(g).prototype;
+                    if (topUp) {
+                        if (!ItemStack.areItemsAndComponentsEqual(slotStack, prototype)) {
+                            continue;
+                        }
+                        int room = inventory.getMaxCount(slotStack) - slotStack.getCount();
+                        if (room > 0) {
+                            int count = (int) Math.min(room, remaining[g]);
+                            slotStack.increment(count);
+                            remaining[g] -= count;
+                            changed = true;
+                        }
+                    } else {
+                        int count = (int) Math.min(inventory.getMaxCount(prototype), remaining[g]);
+                        inventory.setStack(slot, prototype.copyWithCount(count));
+                        remaining[g] -= count;
+                        changed = true;
+                    }
+                    break; // A slot only ever holds one item type
+                }
+            }
+        }
+        if (changed) {
+            inventory.markDirty();
+        }
+
+        for (int g = 0; g < remaining.length; g++) {
+            Group group = groups.get(g);
+            long inserted = group.count - remaining[g];
+            if (inserted > 0 && undoData != null) {
+                // One registry lookup per item type and batch
+                undoData.addInventoryItem(Registries.ITEM.getId(group.prototype.getItem()).toString(), (int) inserted);
+            }
+            if (remaining[g] > 0) {
+                BlockPos anchor = group.anchor();
+                int maxCount = group.prototype.getMaxCount();
+                while (remaining[g] > 0) {
+                    int count = (int) Math.min(maxCount, remaining[g]);
+                    remaining[g] -= count;
+                    leftovers.accept(group.prototype.copyWithCount(count), anchor);
+                }
+            }
+        }
+        groups.clear();
+    }
+
+    private static final class Group {
+        final ItemStack prototype; // Count 1 - only item and components matter
+        long count;
+        final LongArrayList sources = new LongArrayList(); // Packed positions of the blocks that dropped it
+        // Sum of the source block coordinates, for the center
+        long sumX;
+        long sumY;
+        long sumZ;
+
+        Group(ItemStack prototype) {
+            this.prototype = prototype;
+        }
+
+        // The source block nearest the center of all sources - it was mined, so it's free space
+        BlockPos anchor() {
+            int n = sources.size();
+            double centerX = (double) sumX / n;
+            double centerY = (double) sumY / n;
+            double centerZ = (double) sumZ / n;
+            long best = sources.getLong(0);
+            double bestDistance = Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                long packedPos = sources.getLong(i);
+                double dx = BlockPos.unpackLongX(packedPos) - centerX;
+                double dy = BlockPos.unpackLongY(packedPos) - centerY;
+                double dz = BlockPos.unpackLongZ(packedPos) - centerZ;
+                double distance = dx * dx + dy * dy + dz * dz;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = packedPos;
+                }
+            }
+            return BlockPos.fromLong(best);
+        }
+    }
+}
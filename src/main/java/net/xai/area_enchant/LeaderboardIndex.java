@@ -0,0 +1,249 @@
+package net.xai.area_enchant;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sorted leaderboards for blocks, diamonds and tokens over every stored player, online or not.
+ *
+ * Each stat keeps its players in a treap ordered by value (highest first) whose nodes know their
+ * subtree size, so an update is a remove + insert, and both top-N and a player's rank take
+ * O(log n + N) instead of sorting everyone per command. PlayerData reports every change of a
+ * ranked value through onChanged(); rebuild() reloads everything from the store when a world's
+ * player data is opened.
+ *
+ * Server thread only.
+ */
+public final class LeaderboardIndex {
+    public enum Stat {
+        BLOCKS, DIAMONDS, TOKENS;
+
+        /** Parse a /areamine leaderboard type, or null. */
+        public static Stat byName(String name) {
+            return switch (name.toLowerCase()) {
+                case "blocks" -> BLOCKS;
+                case "diamonds" -> DIAMONDS;
+                case "tokens" -> TOKENS;
+                default -> null;
+            };
+        }
+
+        int valueOf(PlayerDataManager.PlayerData data) {
+            return switch (this) {
+                case BLOCKS -> data.getBlocksMined();
+                case DIAMONDS -> data.getDiamondsMined();
+                case TOKENS -> data.getMiningTokens();
+            };
+        }
+    }
+
+    public record Entry(UUID playerId, int value) {}
+
+    private static final Map<Stat, Board> boards = new EnumMap<>(Stat.class);
+    static {
+        for (Stat stat : Stat.values()) {
+            boards.put(stat, new Board());
+        }
+    }
+
+    private LeaderboardIndex() {
+    }
+
+    /** Record a player's new value for stat. */
+    public static void onChanged(UUID playerId, Stat stat, int value) {
+        boards.get(stat).set(playerId, value);
+    }
+
+    /** Replace every board with the data of all stored (and cached) players. */
+    public static void rebuild() {
+        for (Board board : boards.values()) {
+            board.clear();
+        }
+        PlayerDataManager.forEachStored((playerId, data) -> {
+            for (Stat stat : Stat.values()) {
+                boards.get(stat).set(playerId, stat.valueOf(data));
+            }
+        });
+        AreaMineLog.debug("LEADERBOARD", () -> "Indexed " + boards.get(Stat.BLOCKS).values.size() + " players");
+    }
+
+    /** The best n players for stat, best first. */
+    public static List<Entry> top(Stat stat, int n) {
+        return boards.get(stat).top(n);
+    }
+
+    /** 1-based rank of the player for stat, or 0 if they have no data. */
+    public static int rank(Stat stat, UUID playerId) {
+        return boards.get(stat).rank(playerId);
+    }
+
+    public static int size(Stat stat) {
+        return boards.get(stat).values.size();
+    }
+
+    /** One stat: current value per player plus the ordered treap. */
+    private static final class Board {
+        private final Map<UUID, Integer> values = new HashMap<>();
+        private Node root;
+
+        void clear() {
+            values.clear();
+            root = null;
+        }
+
+        void set(UUID playerId, int value) {
+            Integer old = values.put(playerId, value);
+            if (old != null) {
+                if (old == value) {
+                    return;
+                }
+                root = remove(root, old, playerId);
+            }
+            root = insert(root, new Node(value, playerId));
+        }
+
+        int rank(UUID playerId) {
+            Integer value = values.get(playerId);
+            if (value == null) {
+                return 0;
+            }
+            // Count the nodes ordered before (value, playerId) on the way down
+            int before = 0;
+            Node node = root;
+            while (node != null) {
+                int cmp = compare(value, playerId, node);
+                if (cmp < 0) {
+                    node = node.left;
+                } else if (cmp > 0) {
+                    before += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    return before + size(node.left) + 1;
+                }
+            }
+            return 0; // Not reached while values and the treap agree
+        }
+
+        List<Entry> top(int n) {
+            List<Entry> result = new ArrayList<>(Math.min(n, values.size()));
+            // In-order walk, stopping after n nodes
+            ArrayDeque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            while ((node != null || !stack.isEmpty()) && result.size() < n) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+                node = stack.pop();
+                result.add(new Entry(node.playerId, node.value));
+                node = node.right;
+            }
+            return result;
+        }
+
+        private static Node insert(Node node, Node added) {
+            if (node == null) {
+                return added;
+            }
+            if (added.priority > node.priority) {
+                // The new node becomes the root of this subtree
+                Node[] parts = split(node, added.value, added.playerId);
+                added.left = parts[0];
+                added.right = parts[1];
+                return update(added);
+            }
+            if (compare(added.value, added.playerId, node) < 0) {
+                node.left = insert(node.left, added);
+            } else {
+                node.right = insert(node.right, added);
+            }
+            return update(node);
+        }
+
+        private static Node remove(Node node, int value, UUID playerId) {
+            if (node == null) {
+                return null;
+            }
+            int cmp = compare(value, playerId, node);
+            if (cmp == 0) {
+                return merge(node.left, node.right);
+            }
+            if (cmp < 0) {
+                node.left = remove(node.left, value, playerId);
+            } else {
+                node.right = remove(node.right, value, playerId);
+            }
+            return update(node);
+        }
+
+        // Split into nodes ordered before (value, playerId) and the rest
+        private static Node[] split(Node node, int value, UUID playerId) {
+            if (node == null) {
+                return new Node[2];
+            }
+            if (compare(value, playerId, node) > 0) {
+                Node[] parts = split(node.right, value, playerId);
+                node.right = parts[0];
+                parts[0] = update(node);
+                return parts;
+            }
+            Node[] parts = split(node.left, value, playerId);
+            node.left = parts[1];
+            parts[1] = update(node);
+            return parts;
+        }
+
+        // Every node of a is ordered before every node of b
+        private static Node merge(Node a, Node b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            if (a.priority > b.priority) {
+                a.right = merge(a.right, b);
+                return update(a);
+            }
+            b.left = merge(a, b.left);
+            return update(b);
+        }
+
+        // Highest value first; ties broken by UUID so every player has a distinct position
+        private static int compare(int value, UUID playerId, Node node) {
+            if (value != node.value) {
+                return value > node.value ? -1 : 1;
+            }
+            return playerId.compareTo(node.playerId);
+        }
+
+        private static int size(Node node) {
+            return node != null ? node.size : 0;
+        }
+
+        private static Node update(Node node) {
+            node.size = size(node.left) + size(node.right) + 1;
+            return node;
+        }
+    }
+
+    private static final class Node {
+        final int value;
+        final UUID playerId;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(int value, UUID playerId) {
+            this.value = value;
+            this.playerId = playerId;
+        }
+    }
+}
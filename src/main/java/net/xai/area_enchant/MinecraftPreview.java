@@ -1,187 +1,169 @@
 package net.xai.area_enchant;
 
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.enchantment.Enchantment;
 import net.minecraft.enchantment.EnchantmentHelper;
 import net.minecraft.item.ItemStack;
-import net.minecraft.particle.ParticleTypes;
 import net.minecraft.registry.RegistryKeys;
 import net.minecraft.registry.entry.RegistryEntry;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.hit.HitResult;
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 
-import java.util.List;
 import java.util.Optional;
 
 /**
- * Client-side visual preview system for Area Mine
+ * Client-side visual preview system for Area Mine.
+ * Works out which blocks the held tool would mine; PreviewRenderer draws their outline.
  */
 public class MinecraftPreview {
     
     private static long lastPreviewTime = 0;
     private static final long PREVIEW_COOLDOWN = 100; // ms between previews (faster refresh)
     
-    public static void showPreviewParticles(MinecraftClient client) {
+    // CRITICAL: The selection is cached - the registry lookup, level check, pattern and block scan only
+    // run again when the target, face, pattern, size or held stack change, or a block inside the
+    // cached volume changes (onBlockChanged). Crouching at the same spot costs one key compare per refresh.
+    private record SelectionKey(ClientWorld world, long target, Direction face, String pattern,
+                                int horizontal, int vertical, int depth) {}
+    private static SelectionKey cachedKey = null;
+    private static BlockBox cachedBounds = null;
+    private static final LongArrayList cachedBlocks = new LongArrayList(); // Non-air blocks of the selection
+    private static boolean selectionDirty = true;
+    private static int selectionVersion = 0; // Bumped whenever cachedBlocks changes
+    private static boolean visible = false;  // Whether the last refresh wants the selection shown
+    // Held stack the Area Mine level was looked up for
+    private static ItemStack cachedStack = ItemStack.EMPTY;
+    private static ClientWorld cachedStackWorld = null;
+    private static int cachedLevel = 0;
+    
+    /** A block changed on the client - recompute the selection if it's inside. Client thread. */
+    public static void onBlockChanged(BlockPos pos) {
+        if (cachedBounds != null && cachedBounds.contains(pos)) {
+            selectionDirty = true;
+        }
+    }
+    
+    /** Whether the selection should be drawn right now. */
+    public static boolean isVisible() {
+        return visible;
+    }
+    
+    /** Non-air blocks of the current selection (packed positions). Don't modify. */
+    public static LongArrayList getSelection() {
+        return cachedBlocks;
+    }
+    
+    /** Changes whenever the selection does - PreviewRenderer rebuilds its outline then. */
+    public static int getSelectionVersion() {
+        return selectionVersion;
+    }
+    
+    public static String getSelectionPattern() {
+        return cachedKey != null ? cachedKey.pattern() : "cube";
+    }
+    
+    public static void updatePreview(MinecraftClient client) {
         try {
             ClientPlayerEntity player = client.player;
             ClientWorld world = client.world;
             
-            if (player == null || world == null) return;
+            if (player == null || world == null) {
+                visible = false;
+                return;
+            }
             
             // Throttle preview updates
             long currentTime = System.currentTimeMillis();
             if (currentTime - lastPreviewTime < PREVIEW_COOLDOWN) return;
             lastPreviewTime = currentTime;
+            // Hidden unless every check below passes
+            visible = false;
             
             // Check if player is looking at a block
             if (client.crosshairTarget == null || client.crosshairTarget.getType() != HitResult.Type.BLOCK) {
                 return;
             }
             
+            if (AreaEnchantMod.config == null) return;
+            
+            // Show preview when crouching, or when crouch requirement is disabled (so standing shows it too)
+            if (AreaEnchantMod.config.requireCrouch && !player.isSneaking()) return;
+            
             BlockHitResult hitResult = (BlockHitResult) client.crosshairTarget;
             BlockPos targetPos = hitResult.getBlockPos();
             Direction face = hitResult.getSide();
             
-            // Check if player has Area Mine enchantment
+            // Check if player has Area Mine enchantment (looked up again only when the held stack changes)
             ItemStack stack = player.getMainHandStack();
-            Optional<net.minecraft.registry.Registry<Enchantment>> enchantmentRegistry = 
-                world.getRegistryManager().getOptional(RegistryKeys.ENCHANTMENT);
-            
-            if (enchantmentRegistry.isEmpty()) return;
-            
-            RegistryEntry<Enchantment> entry = enchantmentRegistry.get()
-                .getEntry(AreaEnchantMod.AREA_MINE.getValue()).orElse(null);
-            
-            if (entry == null) return;
-            
-            int level = EnchantmentHelper.getLevel(entry, stack);
+            if (world != cachedStackWorld || !ItemStack.areEqual(stack, cachedStack)) {
+                cachedStack = stack.copy();
+                cachedStackWorld = world;
+                cachedLevel = getAreaMineLevel(world, stack);
+            }
+            int level = cachedLevel;
             if (level <= 0) return;
             
-            if (AreaEnchantMod.config == null) return;
-            
-            // Show preview when crouching, or when crouch requirement is disabled (so standing shows particles too)
-            if (AreaEnchantMod.config.requireCrouch && !player.isSneaking()) return;
-            
             // Get the mining pattern and calculate blocks
             String pattern = AreaEnchantMod.config.miningPattern;
             var sizeConfig = AreaEnchantMod.config.patternLevels.containsKey(pattern) ?
                 AreaEnchantMod.config.patternLevels.get(pattern).getOrDefault(level, new AreaEnchantMod.Size(level, level, level)) :
                 AreaEnchantMod.config.levels.getOrDefault(level, new AreaEnchantMod.Size(level, level, level));
             
-            List<BlockPos> blocksToMine = MiningPattern.getBlocksToMine(
-                pattern,
-                targetPos,
-                face,
-                sizeConfig.horizontal,
-                sizeConfig.vertical,
-                sizeConfig.depth
-            );
-            
-            // Spawn preview particles for each block using MinecraftClient's particle manager
-            MinecraftClient mc = MinecraftClient.getInstance();
-            if (mc.particleManager == null) return;
-            
-            // Get particle type based on pattern
-            var particleType = getParticleForPattern(pattern);
-            
-            for (BlockPos pos : blocksToMine) {
-                if (world.getBlockState(pos).isAir()) continue;
-                
-                // Draw particles along all 12 edges of each block for clear box outline
-                drawBlockOutline(mc, pos, particleType);
-            }
-            
-            // Highlight the target block with enchantment particles
-            for (int i = 0; i < 12; i++) {
-                double offsetX = (Math.random() - 0.5) * 0.8;
-                double offsetY = (Math.random() - 0.5) * 0.8;
-                double offsetZ = (Math.random() - 0.5) * 0.8;
-                
-                mc.particleManager.addParticle(
-                    ParticleTypes.ENCHANT,
-                    targetPos.getX() + 0.5 + offsetX,
-                    targetPos.getY() + 0.5 + offsetY,
-                    targetPos.getZ() + 0.5 + offsetZ,
-                    0.0, 0.1, 0.0
-                );
+            SelectionKey key = new SelectionKey(world, targetPos.asLong(), face, pattern,
+                sizeConfig.horizontal, sizeConfig.vertical, sizeConfig.depth);
+            if (selectionDirty || !key.equals(cachedKey)) {
+                computeSelection(world, key, targetPos);
             }
+            visible = true;
             
         } catch (Exception e) {
             // Silently fail if preview doesn't work
+            visible = false;
         }
     }
     
-    /**
-     * Draw a clear outline around a block by spawning particles along all 12 edges
-     */
-    private static void drawBlockOutline(MinecraftClient mc, BlockPos pos, net.minecraft.particle.SimpleParticleType particleType) {
-        double x = pos.getX();
-        double y = pos.getY();
-        double z = pos.getZ();
-        
-        // Get particle density from config
-        int particlesPerEdge = switch (AreaEnchantMod.config.previewDensity.toLowerCase()) {
-            case "high" -> 3;
-            case "low" -> 1;
-            default -> 2; // medium
-        };
+    // Area Mine level of stack, or 0
+    private static int getAreaMineLevel(ClientWorld world, ItemStack stack) {
+        if (stack.isEmpty()) return 0;
+        Optional<net.minecraft.registry.Registry<Enchantment>> enchantmentRegistry =
+            world.getRegistryManager().getOptional(RegistryKeys.ENCHANTMENT);
+        if (enchantmentRegistry.isEmpty()) return 0;
         
-        // Bottom face edges (4 edges)
-        drawLine(mc, x, y, z, x + 1, y, z, particlesPerEdge, particleType);         // Bottom front
-        drawLine(mc, x, y, z + 1, x + 1, y, z + 1, particlesPerEdge, particleType); // Bottom back
-        drawLine(mc, x, y, z, x, y, z + 1, particlesPerEdge, particleType);         // Bottom left
-        drawLine(mc, x + 1, y, z, x + 1, y, z + 1, particlesPerEdge, particleType); // Bottom right
+        RegistryEntry<Enchantment> entry = enchantmentRegistry.get()
+            .getEntry(AreaEnchantMod.AREA_MINE.getValue()).orElse(null);
+        if (entry == null) return 0;
         
-        // Top face edges (4 edges)
-        drawLine(mc, x, y + 1, z, x + 1, y + 1, z, particlesPerEdge, particleType);         // Top front
-        drawLine(mc, x, y + 1, z + 1, x + 1, y + 1, z + 1, particlesPerEdge, particleType); // Top back
-        drawLine(mc, x, y + 1, z, x, y + 1, z + 1, particlesPerEdge, particleType);         // Top left
-        drawLine(mc, x + 1, y + 1, z, x + 1, y + 1, z + 1, particlesPerEdge, particleType); // Top right
-        
-        // Vertical edges (4 edges)
-        drawLine(mc, x, y, z, x, y + 1, z, particlesPerEdge, particleType);         // Front left
-        drawLine(mc, x + 1, y, z, x + 1, y + 1, z, particlesPerEdge, particleType); // Front right
-        drawLine(mc, x, y, z + 1, x, y + 1, z + 1, particlesPerEdge, particleType); // Back left
-        drawLine(mc, x + 1, y, z + 1, x + 1, y + 1, z + 1, particlesPerEdge, particleType); // Back right
+        return EnchantmentHelper.getLevel(entry, stack);
     }
     
-    /**
-     * Draw a line of particles between two points
-     */
-    private static void drawLine(MinecraftClient mc, double x1, double y1, double z1, 
-                                   double x2, double y2, double z2, int particles,
-                                   net.minecraft.particle.SimpleParticleType particleType) {
-        for (int i = 0; i <= particles; i++) {
-            double t = (double) i / particles;
-            double x = x1 + (x2 - x1) * t;
-            double y = y1 + (y2 - y1) * t;
-            double z = z1 + (z2 - z1) * t;
-            
-            mc.particleManager.addParticle(
-                particleType,
-                x, y, z,
-                0.0, 0.0, 0.0
-            );
+    // Scan the pattern around the target once and keep its non-air blocks
+    private static void computeSelection(ClientWorld world, SelectionKey key, BlockPos targetPos) {
+        MiningPattern.Template template = MiningPattern.getTemplate(
+            key.pattern(),
+            key.face(),
+            key.horizontal(),
+            key.vertical(),
+            key.depth()
+        );
+        
+        cachedBlocks.clear();
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int i = 0; i < template.size(); i++) {
+            template.getPos(i, targetPos, pos);
+            if (!world.getBlockState(pos).isAir()) {
+                cachedBlocks.add(pos.asLong());
+            }
         }
-    }
-    
-    /**
-     * Get particle type based on mining pattern
-     * Cube: Purple, Sphere: Orange, Tunnel: Yellow, Cross: Green, Layer: Cyan, Vertical: Purple Portal
-     */
-    private static net.minecraft.particle.SimpleParticleType getParticleForPattern(String pattern) {
-        return switch (pattern.toLowerCase()) {
-            case "cube" -> ParticleTypes.ENCHANT;           // Purple (subtle, not bright)
-            case "sphere" -> ParticleTypes.WAX_ON;          // Orange sparkles (stable, no flicker)
-            case "tunnel" -> ParticleTypes.FLAME;           // Yellow/Orange
-            case "cross" -> ParticleTypes.HAPPY_VILLAGER;   // Green
-            case "layer" -> ParticleTypes.GLOW;             // Cyan/Teal (subtle, non-intrusive)
-            case "vertical" -> ParticleTypes.PORTAL;        // Purple
-            default -> ParticleTypes.ENCHANT;               // Fallback to purple (subtle)
-        };
+        // The whole volume, air included - a block placed into it changes the selection too
+        cachedBounds = template.getBounds(targetPos);
+        cachedKey = key;
+        selectionDirty = false;
+        selectionVersion++;
     }
 }
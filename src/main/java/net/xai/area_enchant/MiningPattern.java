@@ -1,15 +1,41 @@
 package net.xai.area_enchant;
 
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MiningPattern {
     
+    // Relative offsets for every (pattern, face, size) combination seen so far
+    // Patterns only depend on these inputs, so each one is generated once and reused for every activation
+    // Concurrent because the client preview and the integrated server both read it
+    private static final Map<TemplateKey, Template> templates = new ConcurrentHashMap<>();
+    
+    private record TemplateKey(String pattern, Direction face, int horizontal, int vertical, int depth) {}
+    
+    /**
+     * Get the cached offset template for a pattern. Iterate it against a center position
+     * (see {@link Template#getPos}) instead of building a new list of BlockPos per activation.
+     */
+    public static Template getTemplate(String pattern, Direction face, int horizontal, int vertical, int depth) {
+        TemplateKey key = new TemplateKey(pattern.toLowerCase(), face, horizontal, vertical, depth);
+        return templates.computeIfAbsent(key, k -> Template.of(
+            generate(k.pattern(), BlockPos.ORIGIN, k.face(), k.horizontal(), k.vertical(), k.depth())));
+    }
+    
     public static List<BlockPos> getBlocksToMine(String pattern, BlockPos center, Direction face, 
                                                   int horizontal, int vertical, int depth) {
-        return switch (pattern.toLowerCase()) {
+        return getTemplate(pattern, face, horizontal, vertical, depth).toList(center);
+    }
+    
+    // Builds the pattern around center - used once per template (around the origin)
+    private static List<BlockPos> generate(String pattern, BlockPos center, Direction face, 
+                                           int horizontal, int vertical, int depth) {
+        return switch (pattern) {
             case "sphere" -> {
                 // Use the max dimension as radius (config already has correct values)
                 int radius = Math.max(horizontal, Math.max(vertical, depth));
@@ -228,6 +254,66 @@ public class MiningPattern {
         return blocks;
     }
     
+    /**
+     * Immutable list of offsets relative to the mined block, in the same order the
+     * pattern generator produced them. Offsets are packed with BlockPos.asLong.
+     */
+    public static final class Template {
+        private final long[] offsets;
+        // Bounding box of the offsets (relative to the center) - used to know which chunk sections a pattern touches
+        private final BlockBox bounds;
+        
+        private Template(long[] offsets, BlockBox bounds) {
+            this.offsets = offsets;
+            this.bounds = bounds;
+        }
+        
+        private static Template of(List<BlockPos> offsetsFromOrigin) {
+            long[] packed = new long[offsetsFromOrigin.size()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = offsetsFromOrigin.get(i).asLong();
+            }
+            BlockBox bounds = BlockBox.encompassPositions(offsetsFromOrigin).orElse(new BlockBox(BlockPos.ORIGIN));
+            return new Template(packed, bounds);
+        }
+        
+        public int size() {
+            return offsets.length;
+        }
+        
+        /** Bounding box of the pattern when placed around center. */
+        public BlockBox getBounds(BlockPos center) {
+            return bounds.offset(center.getX(), center.getY(), center.getZ());
+        }
+        
+        /** Absolute position of offset i around center, written into out (no allocation). */
+        public BlockPos.Mutable getPos(int i, BlockPos center, BlockPos.Mutable out) {
+            long offset = offsets[i];
+            return out.set(
+                center.getX() + BlockPos.unpackLongX(offset),
+                center.getY() + BlockPos.unpackLongY(offset),
+                center.getZ() + BlockPos.unpackLongZ(offset));
+        }
+        
+        /** Absolute position of offset i around center, packed with BlockPos.asLong. */
+        public long getPackedPos(int i, BlockPos center) {
+            long offset = offsets[i];
+            return BlockPos.asLong(
+                center.getX() + BlockPos.unpackLongX(offset),
+                center.getY() + BlockPos.unpackLongY(offset),
+                center.getZ() + BlockPos.unpackLongZ(offset));
+        }
+        
+        public List<BlockPos> toList(BlockPos center) {
+            List<BlockPos> blocks = new ArrayList<>(offsets.length);
+            BlockPos.Mutable mutable = new BlockPos.Mutable();
+            for (int i = 0; i < offsets.length; i++) {
+                blocks.add(getPos(i, center, mutable).toImmutable());
+            }
+            return blocks;
+        }
+    }
+    
     private static int getLower(int size) {
         return -((size - 1) / 2);
     }
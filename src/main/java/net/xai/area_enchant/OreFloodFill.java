@@ -0,0 +1,106 @@
+package net.xai.area_enchant;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Bounded flood fill over connected blocks of one type (ore veins).
+ * Breadth-first from the start block, so when a limit is hit the blocks closest to the start
+ * are the ones that were found. Stops at config-driven limits instead of searching a whole
+ * modded ore cave: maxNodes caps the result size (and so the work per call), maxRadius the
+ * distance from the start on any axis.
+ */
+public final class OreFloodFill {
+    // Face neighbours only
+    private static final int[][] FACE_NEIGHBOURS = {
+        {1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}
+    };
+
+    // Faces, edges and corners - veins that only touch diagonally still count as connected
+    private static final int[][] ALL_NEIGHBOURS = new int[26][];
+    static {
+        int i = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx != 0 || dy != 0 || dz != 0) {
+                        ALL_NEIGHBOURS[i++] = new int[] {dx, dy, dz};
+                    }
+                }
+            }
+        }
+    }
+
+    private OreFloodFill() {
+    }
+
+    /** Flood fill with the limits from the config. */
+    public static LongOpenHashSet fill(BlockStateLookup lookup, BlockPos start, Block target) {
+        AreaEnchantMod.Config config = AreaEnchantMod.config;
+        MiningMetrics.Span span = MiningMetrics.begin(MiningMetrics.Stage.FLOOD_FILL);
+        LongOpenHashSet connected = fill(lookup, start, target, config.oreFloodFillMaxBlocks, config.oreFloodFillMaxRadius, config.oreFloodFillDiagonal);
+        span.end(connected.size());
+        return connected;
+    }
+
+    /**
+     * Find the blocks of type target connected to start (start itself is always included).
+     * The returned set comes from the per-thread PositionPool - the caller must release it.
+     *
+     * @param maxNodes  stop once this many blocks have been found
+     * @param maxRadius ignore blocks further than this from start on any axis
+     * @param diagonal  26-neighbour connectivity instead of 6
+     */
+    public static LongOpenHashSet fill(BlockStateLookup lookup, BlockPos start, Block target,
+                                       int maxNodes, int maxRadius, boolean diagonal) {
+        // Every queued position is part of the vein, so the visited set doubles as the result
+        LongOpenHashSet connected = PositionPool.acquireSet();
+        LongArrayFIFOQueue queue = PositionPool.acquireQueue();
+        int[][] neighbours = diagonal ? ALL_NEIGHBOURS : FACE_NEIGHBOURS;
+        int limit = Math.max(1, maxNodes);
+        int startX = start.getX();
+        int startY = start.getY();
+        int startZ = start.getZ();
+
+        long startPacked = start.asLong();
+        connected.add(startPacked);
+        queue.enqueue(startPacked);
+
+        search:
+        while (!queue.isEmpty()) {
+            long current = queue.dequeueLong();
+            int x = BlockPos.unpackLongX(current);
+            int y = BlockPos.unpackLongY(current);
+            int z = BlockPos.unpackLongZ(current);
+
+            for (int[] offset : neighbours) {
+                int nx = x + offset[0];
+                int ny = y + offset[1];
+                int nz = z + offset[2];
+                if (Math.abs(nx - startX) > maxRadius || Math.abs(ny - startY) > maxRadius || Math.abs(nz - startZ) > maxRadius) {
+                    continue;
+                }
+
+                long neighbourPacked = BlockPos.asLong(nx, ny, nz);
+                if (connected.contains(neighbourPacked)) {
+                    continue;
+                }
+
+                BlockState neighbourState = lookup.getBlockState(nx, ny, nz);
+                if (neighbourState.getBlock() == target && !neighbourState.isAir()) {
+                    connected.add(neighbourPacked);
+                    if (connected.size() >= limit) {
+                        break search; // Capped - the rest of the vein is left alone
+                    }
+                    queue.enqueue(neighbourPacked);
+                }
+            }
+        }
+
+        PositionPool.release(queue);
+        return connected;
+    }
+}
@@ -0,0 +1,296 @@
+package net.xai.area_enchant;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binary format for player data files (.dat).
+ *
+ * Layout:
+ *   header   - magic "AMPD" (4 bytes), format version (1 byte)
+ *   strings  - varint count, then each string as varint length + UTF-8 bytes
+ *   counters - varints (zigzag) for the numbers, one byte of flags for the booleans
+ *   maps     - varint size, then entries that refer to the string table by varint index
+ *
+ * Block and dimension ids appear once per file in the string table, however many maps use them,
+ * and a typical entry is 2-4 bytes instead of a pretty-printed JSON line. The version is checked
+ * from the header before anything else is parsed.
+ */
+public final class PlayerDataCodec {
+    private static final int MAGIC = 0x414D5044; // "AMPD"
+    public static final int VERSION = 1;
+
+    // Boolean fields, packed into one byte
+    private static final int FLAG_DISABLED = 1;
+    private static final int FLAG_FIRST_USE = 1 << 1;
+    private static final int FLAG_EFFICIENCY_EXPERT = 1 << 2;
+    private static final int FLAG_DIAMOND_DIGGER = 1 << 3;
+    private static final int FLAG_UNSTOPPABLE = 1 << 4;
+    private static final int FLAG_EXCAVATOR = 1 << 5;
+    private static final int FLAG_TOKEN_MILLIONAIRE = 1 << 6;
+    private static final int FLAG_MASTER_MINER = 1 << 7;
+
+    private PlayerDataCodec() {
+    }
+
+    public static byte[] encode(PlayerDataManager.PlayerData data) {
+        // Old JSON files can have explicit nulls - write those as empty
+        Map<String, Boolean> upgrades = data.unlockedUpgrades != null ? data.unlockedUpgrades : Map.of();
+        Set<String> patterns = data.unlockedPatterns != null ? data.unlockedPatterns : Set.of();
+        Map<String, Integer> blockTypeStats = data.blockTypeStats != null ? data.blockTypeStats : Map.of();
+        Map<String, Integer> dimensionStats = data.dimensionStats != null ? data.dimensionStats : Map.of();
+
+        // String table: every map key, each stored once
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (String key : upgrades.keySet()) {
+            intern(key, strings, table);
+        }
+        for (String key : patterns) {
+            intern(key, strings, table);
+        }
+        for (String key : blockTypeStats.keySet()) {
+            intern(key, strings, table);
+        }
+        for (String key : dimensionStats.keySet()) {
+            intern(key, strings, table);
+        }
+
+        Output out = new Output(64 + table.size() * 24);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+
+        out.writeVarInt(table.size());
+        for (String string : table) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            out.writeVarInt(utf8.length);
+            out.writeBytes(utf8);
+        }
+
+        out.writeVarLong(zigzag(data.lastUseTick));
+        out.writeVarInt(zigzag(data.blocksMined));
+        out.writeVarInt(zigzag(data.timesUsed));
+        out.writeVarInt(zigzag(data.diamondsMined));
+        out.writeVarInt(zigzag(data.sessionBlocksMined));
+        out.writeVarInt(zigzag(data.miningTokens));
+        out.writeVarLong(zigzag(data.totalMiningTime));
+        int flags = 0;
+        if (data.disabled) flags |= FLAG_DISABLED;
+        if (data.firstUse) flags |= FLAG_FIRST_USE;
+        if (data.earnedEfficiencyExpert) flags |= FLAG_EFFICIENCY_EXPERT;
+        if (data.earnedDiamondDigger) flags |= FLAG_DIAMOND_DIGGER;
+        if (data.earnedUnstoppable) flags |= FLAG_UNSTOPPABLE;
+        if (data.earnedExcavator) flags |= FLAG_EXCAVATOR;
+        if (data.earnedTokenMillionaire) flags |= FLAG_TOKEN_MILLIONAIRE;
+        if (data.earnedMasterMiner) flags |= FLAG_MASTER_MINER;
+        out.writeByte(flags);
+
+        out.writeVarInt(upgrades.size());
+        for (Map.Entry<String, Boolean> entry : upgrades.entrySet()) {
+            out.writeVarInt(strings.get(entry.getKey()));
+            out.writeByte(Boolean.TRUE.equals(entry.getValue()) ? 1 : 0);
+        }
+        out.writeVarInt(patterns.size());
+        for (String pattern : patterns) {
+            out.writeVarInt(strings.get(pattern));
+        }
+        writeCounts(out, blockTypeStats, strings);
+        writeCounts(out, dimensionStats, strings);
+        return out.toByteArray();
+    }
+
+    public static PlayerDataManager.PlayerData decode(byte[] bytes) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not an Area Mine player data file");
+            }
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IOException("Unsupported player data version " + version + " (expected " + VERSION + ")");
+            }
+
+            String[] table = new String[readVarInt(in)];
+            for (int i = 0; i < table.length; i++) {
+                byte[] utf8 = new byte[readVarInt(in)];
+                in.get(utf8);
+                table[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+
+            PlayerDataManager.PlayerData data = new PlayerDataManager.PlayerData();
+            data.lastUseTick = unzigzag(readVarLong(in));
+            data.blocksMined = unzigzag(readVarInt(in));
+            data.timesUsed = unzigzag(readVarInt(in));
+            data.diamondsMined = unzigzag(readVarInt(in));
+            data.sessionBlocksMined = unzigzag(readVarInt(in));
+            data.miningTokens = unzigzag(readVarInt(in));
+            data.totalMiningTime = unzigzag(readVarLong(in));
+            int flags = in.get() & 0xFF;
+            data.disabled = (flags & FLAG_DISABLED) != 0;
+            data.firstUse = (flags & FLAG_FIRST_USE) != 0;
+            data.earnedEfficiencyExpert = (flags & FLAG_EFFICIENCY_EXPERT) != 0;
+            data.earnedDiamondDigger = (flags & FLAG_DIAMOND_DIGGER) != 0;
+            data.earnedUnstoppable = (flags & FLAG_UNSTOPPABLE) != 0;
+            data.earnedExcavator = (flags & FLAG_EXCAVATOR) != 0;
+            data.earnedTokenMillionaire = (flags & FLAG_TOKEN_MILLIONAIRE) != 0;
+            data.earnedMasterMiner = (flags & FLAG_MASTER_MINER) != 0;
+
+            int upgradeCount = readVarInt(in);
+            Map<String, Boolean> upgrades = new HashMap<>(capacity(upgradeCount));
+            for (int i = 0; i < upgradeCount; i++) {
+                upgrades.put(table[readVarInt(in)], in.get() != 0);
+            }
+            data.unlockedUpgrades = upgrades;
+
+            int patternCount = readVarInt(in);
+            Set<String> patterns = new HashSet<>(capacity(patternCount));
+            for (int i = 0; i < patternCount; i++) {
+                patterns.add(table[readVarInt(in)]);
+            }
+            data.unlockedPatterns = patterns;
+
+            data.blockTypeStats = readCounts(in, table);
+            data.dimensionStats = readCounts(in, table);
+            return data;
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupt player data", e);
+        }
+    }
+
+    private static void intern(String string, Map<String, Integer> strings, List<String> table) {
+        if (!strings.containsKey(string)) {
+            strings.put(string, table.size());
+            table.add(string);
+        }
+    }
+
+    private static void writeCounts(Output out, Map<String, Integer> counts, Map<String, Integer> strings) {
+        out.writeVarInt(counts.size());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            out.writeVarInt(strings.get(entry.getKey()));
+            out.writeVarInt(zigzag(entry.getValue() != null ? entry.getValue() : 0));
+        }
+    }
+
+    private static Map<String, Integer> readCounts(ByteBuffer in, String[] table) {
+        int size = readVarInt(in);
+        Map<String, Integer> counts = new HashMap<>(capacity(size));
+        for (int i = 0; i < size; i++) {
+            String key = table[readVarInt(in)];
+            counts.put(key, unzigzag(readVarInt(in)));
+        }
+        return counts;
+    }
+
+    // HashMap capacity that holds size entries without resizing
+    private static int capacity(int size) {
+        return Math.max(16, (int) (size / 0.75f) + 1);
+    }
+
+    // Zigzag keeps small negative numbers small as varints
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ArrayIndexOutOfBoundsException("VarInt too long");
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ArrayIndexOutOfBoundsException("VarLong too long");
+    }
+
+    /** Growable byte buffer - a ByteArrayOutputStream without the synchronization. */
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            buffer[size++] = (byte) (value >>> 24);
+            buffer[size++] = (byte) (value >>> 16);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+}
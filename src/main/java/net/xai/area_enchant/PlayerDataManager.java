@@ -2,20 +2,43 @@ package net.xai.area_enchant;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class PlayerDataManager {
-    private static final Map<UUID, PlayerData> playerData = new HashMap<>();
+    // Access-ordered, so iteration starts at the least recently used player - see trimCache()
+    private static final Map<UUID, PlayerData> playerData = new LinkedHashMap<>(16, 0.75f, true);
     // SEPARATE storage for undo data - NOT tied to PlayerData so it persists across cache clears
     private static final Map<UUID, UndoData> undoDataStorage = new HashMap<>();
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final Gson gson = new GsonBuilder().create(); // Only reads old JSON player files now
+    private static final String STORE_FILE = "players.amr";
+    // All saved player data of the current world - see PlayerDataStore
+    private static PlayerDataStore store = null;
+    // Set once the server stopped - no store until the next world is set, see getStore()
+    private static boolean storeClosed = false;
+    // Loads started while a player is logging in, taken over by get() (server thread only)
+    private static final Map<UUID, Prefetch> prefetching = new HashMap<>();
+    // Server tick each cached offline player's data stopped being used - evicted after playerDataEvictDelayTicks
+    private static final Map<UUID, Integer> offlineSince = new HashMap<>();
+    // Joined and not yet disconnected - their data is pinned in the cache
+    private static final Set<UUID> online = new HashSet<>();
+    private static int lastTick = 0;
+    // Cache statistics since server start
+    private static long cacheHits = 0;
+    private static long prefetchHits = 0;
+    private static long cacheMisses = 0;
+    private static long cacheEvictions = 0;
     // Default to a relative path, but will be set to absolute path per-world
     private static Path DATA_DIR = Paths.get("world/data/area_mine").toAbsolutePath().normalize();
     
@@ -27,7 +50,7 @@ public class PlayerDataManager {
      * Reset the world directory tracking. Called on server start to ensure fresh detection.
      */
     public static void resetWorldDirectoryTracking() {
-        System.out.println("[Area Mine] [WORLD_DIR] Resetting world directory tracking");
+        AreaMineLog.debug("WORLD_DIR", () -> "Resetting world directory tracking");
         currentWorldSaveDir = null;
     }
     
@@ -44,14 +67,15 @@ public class PlayerDataManager {
         // Compare the world save directory, not the data directory
         boolean isDifferentWorld = currentWorldSaveDir != null && 
             !normalizedWorldDir.equals(currentWorldSaveDir);
+        // Set on every server start by resetWorldDirectoryTracking()
+        boolean isFirstLoad = currentWorldSaveDir == null;
         
-        System.out.println("[Area Mine] [WORLD_DIR] ========================================");
-        System.out.println("[Area Mine] [WORLD_DIR] Current world dir: " + currentWorldSaveDir);
-        System.out.println("[Area Mine] [WORLD_DIR] New world dir: " + normalizedWorldDir);
-        System.out.println("[Area Mine] [WORLD_DIR] Is different world: " + isDifferentWorld);
-        System.out.println("[Area Mine] [WORLD_DIR] Current data dir: " + (currentWorldSaveDir != null ? currentWorldSaveDir.resolve("data/area_mine").toAbsolutePath().normalize() : "null"));
-        System.out.println("[Area Mine] [WORLD_DIR] New data dir: " + newDataDir);
-        System.out.println("[Area Mine] [WORLD_DIR] Player data cache size: " + playerData.size());
+        AreaMineLog.debug("WORLD_DIR", () -> "Current world dir: " + currentWorldSaveDir);
+        AreaMineLog.debug("WORLD_DIR", () -> "New world dir: " + normalizedWorldDir);
+        AreaMineLog.debug("WORLD_DIR", () -> "Is different world: " + isDifferentWorld);
+        AreaMineLog.debug("WORLD_DIR", () -> "Current data dir: " + (currentWorldSaveDir != null ? currentWorldSaveDir.resolve("data/area_mine").toAbsolutePath().normalize() : "null"));
+        AreaMineLog.debug("WORLD_DIR", () -> "New data dir: " + newDataDir);
+        AreaMineLog.debug("WORLD_DIR", () -> "Player data cache size: " + playerData.size());
         
         // CRITICAL: Save current data to old directory BEFORE updating DATA_DIR
         // This must happen BEFORE we update DATA_DIR, otherwise saveAll() will save to the wrong location
@@ -64,54 +88,71 @@ public class PlayerDataManager {
         
         // If the directory changed AND it's a different world, save current data to old location, then clear cache
         if (isDifferentWorld) {
-            System.out.println("[Area Mine] [WORLD_DIR] *** DIFFERENT WORLD DETECTED ***");
-            System.out.println("[Area Mine] [WORLD_DIR] Saving and clearing cache...");
+            AreaMineLog.debug("WORLD_DIR", () -> "*** DIFFERENT WORLD DETECTED ***");
+            AreaMineLog.debug("WORLD_DIR", () -> "Saving and clearing cache...");
             
             // CRITICAL: Save all current player data to the old directory before clearing
             if (!playerData.isEmpty()) {
-                System.out.println("[Area Mine] [WORLD_DIR] Saving " + playerData.size() + " player data entries to old directory: " + oldDataDir);
+                AreaMineLog.debug("WORLD_DIR", () -> "Saving " + playerData.size() + " player data entries to old directory: " + oldDataDir);
                 // Temporarily restore DATA_DIR to old location for saving
                 Path tempDataDir = DATA_DIR;
                 DATA_DIR = oldDataDir;
                 saveAll();
                 DATA_DIR = tempDataDir; // Restore
-                System.out.println("[Area Mine] [WORLD_DIR] Saved to old directory");
+                AreaMineLog.debug("WORLD_DIR", () -> "Saved to old directory");
             }
         } else {
-            System.out.println("[Area Mine] [WORLD_DIR] Same world or first load");
+            AreaMineLog.debug("WORLD_DIR", () -> "Same world or first load");
             if (currentWorldSaveDir == null) {
-                System.out.println("[Area Mine] [WORLD_DIR] First time setting world directory");
+                AreaMineLog.debug("WORLD_DIR", () -> "First time setting world directory");
             } else {
-                System.out.println("[Area Mine] [WORLD_DIR] World directory unchanged - but clearing cache anyway for fresh load");
+                AreaMineLog.debug("WORLD_DIR", () -> "World directory unchanged - keeping cache");
             }
         }
         
         // CRITICAL: Always clear cache on server start to ensure data is loaded from the correct world directory
         // This prevents stale cache data from persisting across world switches
-        if (!playerData.isEmpty()) {
-            System.out.println("[Area Mine] [WORLD_DIR] Clearing player data cache (" + playerData.size() + " entries) to ensure fresh load");
+        // Joins in the same world keep it - it holds prefetched and recently disconnected players
+        boolean resetCache = isDifferentWorld || isFirstLoad;
+        if (resetCache && !playerData.isEmpty()) {
+            AreaMineLog.debug("WORLD_DIR", () -> "Clearing player data cache (" + playerData.size() + " entries) to ensure fresh load");
             playerData.clear();
             playerDataWorldDirs.clear(); // Also clear the world directory tracking
-            System.out.println("[Area Mine] [WORLD_DIR] Cache cleared, will reload from: " + newDataDir);
+            AreaMineLog.debug("WORLD_DIR", () -> "Cache cleared, will reload from: " + newDataDir);
+        }
+        if (resetCache) {
+            prefetching.clear();
+            offlineSince.clear();
+            online.clear();
+            cacheHits = prefetchHits = cacheMisses = cacheEvictions = 0;
         }
         
         // Clear undo data when switching worlds (each world should have separate undo)
-        if (!undoDataStorage.isEmpty()) {
-            System.out.println("[Area Mine] [WORLD_DIR] Clearing undo data (" + undoDataStorage.size() + " entries)");
+        if (resetCache && !undoDataStorage.isEmpty()) {
+            AreaMineLog.debug("WORLD_DIR", () -> "Clearing undo data (" + undoDataStorage.size() + " entries)");
             undoDataStorage.clear();
         }
         
         // Update tracking
         currentWorldSaveDir = normalizedWorldDir;
+        boolean dataDirChanged = !newDataDir.equals(DATA_DIR);
         DATA_DIR = newDataDir;
         
         // Verify directory exists
         try {
             Files.createDirectories(DATA_DIR);
-            System.out.println("[Area Mine] [WORLD_DIR] Data directory verified: " + DATA_DIR);
-            System.out.println("[Area Mine] [WORLD_DIR] ========================================");
+            AreaMineLog.info("WORLD_DIR", "Player data directory: " + DATA_DIR);
         } catch (IOException e) {
-            System.err.println("[Area Mine] Failed to create player data directory: " + e.getMessage());
+            AreaMineLog.error("WORLD_DIR", "Failed to create player data directory: " + e.getMessage());
+        }
+        
+        // Writes queued above still go to the old store; it's closed once they're done
+        if (store != null && dataDirChanged) {
+            closeStore();
+        }
+        storeClosed = false;
+        if (store == null) {
+            openStore();
         }
     }
     
@@ -134,111 +175,488 @@ public class PlayerDataManager {
         if (playerData.containsKey(playerId) && currentWorldSaveDir != null) {
             Path cachedWorldDir = playerDataWorldDirs.get(playerId);
             if (cachedWorldDir != null && !cachedWorldDir.equals(currentWorldSaveDir)) {
-                System.out.println("[Area Mine] [GET] *** Cached data is from different world! Clearing cache for " + playerId + " ***");
-                System.out.println("[Area Mine] [GET] Cached world: " + cachedWorldDir);
-                System.out.println("[Area Mine] [GET] Current world: " + currentWorldSaveDir);
+                AreaMineLog.debug("GET", () -> "*** Cached data is from different world! Clearing cache for " + playerId + " ***");
+                AreaMineLog.debug("GET", () -> "Cached world: " + cachedWorldDir);
+                AreaMineLog.debug("GET", () -> "Current world: " + currentWorldSaveDir);
                 playerData.remove(playerId);
                 playerDataWorldDirs.remove(playerId);
             }
         }
         
-        // CRITICAL: Use computeIfAbsent to ensure we always get the same instance
+        // CRITICAL: Always return the cached instance if there is one
         // This preserves transient undo data in memory
         // BUT: If the world directory changed, the cache should have been cleared
         // So this will reload from the correct directory
-        PlayerData data = playerData.computeIfAbsent(playerId, k -> {
-            System.out.println("[Area Mine] [GET] Loading player data for " + playerId);
-            System.out.println("[Area Mine] [GET] Current world dir: " + currentWorldSaveDir);
-            System.out.println("[Area Mine] [GET] Data directory: " + DATA_DIR);
-            PlayerData loaded = loadFromDisk(playerId);
-            if (loaded != null) {
-                System.out.println("[Area Mine] [GET] Loaded existing data: blocksMined=" + loaded.getBlocksMined() + ", tokens=" + loaded.getMiningTokens());
-            } else {
-                System.out.println("[Area Mine] [GET] No existing data found, creating new");
-            }
-            // Track which world directory this data was loaded from
-            if (currentWorldSaveDir != null) {
-                playerDataWorldDirs.put(playerId, currentWorldSaveDir);
-                System.out.println("[Area Mine] [GET] Tracked world dir for this data: " + currentWorldSaveDir);
-            }
-            return loaded != null ? loaded : new PlayerData();
-        });
+        PlayerData cached = playerData.get(playerId); // Also makes it the most recently used entry
+        if (cached != null) {
+            cacheHits++;
+            return cached;
+        }
+        
+        AreaMineLog.debug("GET", () -> "Loading player data for " + playerId);
+        AreaMineLog.debug("GET", () -> "Current world dir: " + currentWorldSaveDir);
+        AreaMineLog.debug("GET", () -> "Data directory: " + DATA_DIR);
+        PlayerData loaded = takePrefetched(playerId);
+        if (loaded != null) {
+            AreaMineLog.debug("GET", () -> "Loaded existing data: blocksMined=" + loaded.getBlocksMined() + ", tokens=" + loaded.getMiningTokens());
+        } else {
+            AreaMineLog.debug("GET", () -> "No existing data found, creating new");
+        }
+        // Track which world directory this data was loaded from
+        if (currentWorldSaveDir != null) {
+            playerDataWorldDirs.put(playerId, currentWorldSaveDir);
+            AreaMineLog.debug("GET", () -> "Tracked world dir for this data: " + currentWorldSaveDir);
+        }
+        PlayerData data = loaded != null ? loaded : new PlayerData();
+        data.owner = playerId; // Live instance - its ranked stats now update the leaderboards
+        playerData.put(playerId, data);
+        if (!online.contains(playerId)) {
+            // Loaded for someone who isn't playing (or is still logging in) - ages out like a disconnected player
+            offlineSince.putIfAbsent(playerId, lastTick);
+        }
+        trimCache();
         
         // If data was just loaded from disk, undo data will be null (it's transient)
-        // But if it was already in memory, undo data should persist
         return data;
     }
     
     public static void clear(UUID playerId) {
         playerData.remove(playerId);
+        playerDataWorldDirs.remove(playerId);
+        offlineSince.remove(playerId);
+    }
+    
+    /**
+     * Start loading a player's data on the I/O thread (called while they are logging in), so the first
+     * get() - usually in the join handler - doesn't read the store on the server thread.
+     */
+    public static void prefetch(UUID playerId, int tick) {
+        // Back before their data was evicted - the cached instance is still current, restart its grace
+        // period so it survives until they have joined (and still ages out if the login fails)
+        offlineSince.computeIfPresent(playerId, (id, since) -> tick);
+        if (playerData.containsKey(playerId) || prefetching.containsKey(playerId)) {
+            return;
+        }
+        PlayerDataStore source = getStore();
+        if (source == null) {
+            return; // get() loads it the old way
+        }
+        CompletableFuture<PlayerData> future = PlayerDataWriter.load(() -> readStored(source, playerId));
+        prefetching.put(playerId, new Prefetch(source, future, tick));
+        AreaMineLog.debug("PREFETCH", () -> "Prefetching player data for " + playerId);
+    }
+    
+    /** Player finished joining: pin their data in the cache, waiting for the prefetch if it's still running. */
+    public static PlayerData onJoin(UUID playerId) {
+        online.add(playerId);
+        offlineSince.remove(playerId);
+        return get(playerId);
+    }
+    
+    /** Player left: their (already saved) data stays cached for playerDataEvictDelayTicks in case they come back. */
+    public static void onDisconnect(UUID playerId, int tick) {
+        online.remove(playerId);
+        if (playerData.containsKey(playerId)) {
+            offlineSince.put(playerId, tick);
+        }
+    }
+    
+    /**
+     * Drop offline players whose grace period is over, saving them first, and prefetches nobody
+     * picked up (logins that never finished). Called every tick - cheap when there's nothing to do.
+     */
+    public static void evictIdle(int tick) {
+        lastTick = tick;
+        int delay = Math.max(0, AreaEnchantMod.config.playerDataEvictDelayTicks);
+        if (!offlineSince.isEmpty()) {
+            Iterator<Map.Entry<UUID, Integer>> iterator = offlineSince.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<UUID, Integer> entry = iterator.next();
+                if (tick - entry.getValue() >= delay) {
+                    iterator.remove();
+                    PlayerData data = playerData.remove(entry.getKey());
+                    if (data != null) {
+                        release(entry.getKey(), data);
+                    }
+                }
+            }
+        }
+        if (!prefetching.isEmpty()) {
+            prefetching.values().removeIf(prefetch -> tick - prefetch.startTick() >= delay);
+        }
+    }
+    
+    /**
+     * Keep at most playerDataCacheSize offline players cached, dropping the least recently used first.
+     * Online players are pinned and don't count towards the limit.
+     */
+    private static void trimCache() {
+        // At least 1, so the entry get() just added is never the one evicted
+        int maxOffline = Math.max(1, AreaEnchantMod.config.playerDataCacheSize);
+        int excess = playerData.size() - online.size() - maxOffline;
+        Iterator<Map.Entry<UUID, PlayerData>> iterator = playerData.entrySet().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            Map.Entry<UUID, PlayerData> entry = iterator.next();
+            if (online.contains(entry.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            offlineSince.remove(entry.getKey());
+            release(entry.getKey(), entry.getValue());
+            excess--;
+        }
+    }
+    
+    // Everything else kept for a player whose data just left the cache
+    private static void release(UUID playerId, PlayerData data) {
+        playerDataWorldDirs.remove(playerId);
+        undoDataStorage.remove(playerId); // Nothing to undo once the blocks' player has been gone this long
+        save(playerId, data); // Dirty data is flushed on the way out
+        data.owner = null; // Stray references must not move the leaderboards any more
+        cacheEvictions++;
+        AreaMineLog.debug("EVICT", () -> "Evicted player data for " + playerId);
+    }
+    
+    /** Current cache size and hit rate, plus a rough estimate of the heap it holds. */
+    public static CacheStats getCacheStats() {
+        long heapBytes = 0;
+        for (PlayerData data : playerData.values()) {
+            heapBytes += data.estimateHeapBytes();
+        }
+        for (UndoData undo : undoDataStorage.values()) {
+            heapBytes += undo.estimateHeapBytes();
+        }
+        return new CacheStats(playerData.size(), online.size(), cacheHits, prefetchHits, cacheMisses,
+            cacheEvictions, heapBytes);
+    }
+    
+    public record CacheStats(int entries, int online, long hits, long prefetchHits, long misses,
+                             long evictions, long heapBytes) {
+        /** Share of get() calls answered without a synchronous load - prefetched players count as hits. */
+        public double hitRate() {
+            long total = hits + prefetchHits + misses;
+            return total == 0 ? 1.0 : (double) (hits + prefetchHits) / total;
+        }
+    }
+    
+    // Result of the player's prefetch if there is one for the current store, else a synchronous load
+    private static PlayerData takePrefetched(UUID playerId) {
+        Prefetch prefetch = prefetching.remove(playerId);
+        if (prefetch == null || prefetch.store() != store) {
+            // Not logging in (or the world changed since) - this is the disk read prefetching avoids
+            AreaMineLog.debug("GET", () -> "No prefetch for " + playerId + ", loading synchronously");
+            cacheMisses++;
+            return loadFromDisk(playerId);
+        }
+        if (!prefetch.future().isDone()) {
+            AreaMineLog.debug("PREFETCH", () -> "Waiting for prefetch of " + playerId);
+        }
+        prefetchHits++;
+        try {
+            return prefetch.future().join();
+        } catch (CompletionException e) {
+            AreaMineLog.error("PREFETCH", "Prefetch failed for " + playerId + ", loading synchronously", e.getCause());
+            return loadFromDisk(playerId);
+        }
     }
     
     public static Map<UUID, PlayerData> getAllData() {
         return new HashMap<>(playerData);
     }
     
+    /** Queue a save of every cached player that changed since their last save. */
     public static void saveAll() {
         for (Map.Entry<UUID, PlayerData> entry : playerData.entrySet()) {
-            saveToDisk(entry.getKey(), entry.getValue());
+            save(entry.getKey(), entry.getValue());
         }
     }
     
-    public static void saveToDisk(UUID playerId, PlayerData data) {
+    /**
+     * Queue data to be written by PlayerDataWriter. Returns immediately - the snapshot is encoded and
+     * written on the I/O thread. Does nothing if data hasn't changed since it was last saved.
+     */
+    public static void save(UUID playerId, PlayerData data) {
+        if (!data.isDirty()) {
+            return;
+        }
+        PlayerDataStore target = getStore();
+        if (target == null) {
+            return; // Stays dirty - retried on the next save
+        }
+        data.clearDirty();
+        PlayerDataWriter.schedule(playerId, target, data.copy());
+    }
+    
+    // Called on the I/O thread with a snapshot nobody else touches
+    static byte[] encode(PlayerData data) {
+        return PlayerDataCodec.encode(data);
+    }
+    
+    public static PlayerData loadFromDisk(UUID playerId) {
+        PlayerDataStore source = getStore();
+        if (source == null) {
+            return null;
+        }
+        return readStored(source, playerId);
+    }
+    
+    // Thread-safe - also runs on the I/O thread for prefetches
+    private static PlayerData readStored(PlayerDataStore source, UUID playerId) {
+        // A save that hasn't reached the disk yet is newer than the stored record
+        PlayerData queued = PlayerDataWriter.getPending(playerId, source);
+        if (queued != null) {
+            AreaMineLog.debug("LOAD", () -> "Using queued save for " + playerId);
+            return queued.copy();
+        }
+        
+        byte[] payload;
         try {
-            Files.createDirectories(DATA_DIR);
-            Path playerFile = DATA_DIR.resolve(playerId.toString() + ".json");
-            Files.writeString(playerFile, gson.toJson(data));
-            System.out.println("[Area Mine] [SAVE] Saved to: " + playerFile.toAbsolutePath() + " (blocksMined=" + data.getBlocksMined() + ", tokens=" + data.getMiningTokens() + ")");
+            payload = source.read(playerId);
         } catch (IOException e) {
-            System.err.println("[Area Mine] Failed to save player data: " + e.getMessage());
-            e.printStackTrace();
+            AreaMineLog.error("LOAD", "Failed to load player data for " + playerId, e);
+            return null;
+        }
+        if (payload == null) {
+            AreaMineLog.debug("LOAD", () -> "No stored data, creating new data");
+            return null;
+        }
+        try {
+            PlayerData data = PlayerDataCodec.decode(payload);
+            AreaMineLog.debug("LOAD", () -> "Loaded data: blocksMined=" + data.getBlocksMined() + ", tokens=" + data.getMiningTokens());
+            return data;
+        } catch (IOException e) {
+            AreaMineLog.error("LOAD", "Failed to decode player data for " + playerId, e);
+            // Keep a copy for inspection - the record itself is superseded by the next save
+            try {
+                Files.write(source.getFile().resolveSibling(playerId + ".corrupt"), payload);
+            } catch (IOException writeError) {
+                AreaMineLog.error("LOAD", "Failed to keep corrupt data for " + playerId, writeError);
+            }
+            return null;
         }
     }
     
-    public static PlayerData loadFromDisk(UUID playerId) {
+    /**
+     * Every player with saved or cached data, cached data first-hand (it's newer than the store).
+     * Walks the whole store - for bulk queries, not per-tick use.
+     */
+    public static void forEachStored(java.util.function.BiConsumer<UUID, PlayerData> consumer) {
+        PlayerDataStore source = getStore();
+        if (source != null) {
+            try {
+                source.forEach((playerId, payload) -> {
+                    if (playerData.containsKey(playerId)) {
+                        return; // Reported from the cache below
+                    }
+                    PlayerData queued = PlayerDataWriter.getPending(playerId, source);
+                    try {
+                        consumer.accept(playerId, queued != null ? queued : PlayerDataCodec.decode(payload));
+                    } catch (IOException e) {
+                        AreaMineLog.warn("LOAD", "Skipping unreadable player data for " + playerId);
+                    }
+                });
+            } catch (IOException e) {
+                AreaMineLog.error("LOAD", "Failed to read player store", e);
+            }
+        }
+        for (Map.Entry<UUID, PlayerData> entry : playerData.entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    // Store for the current DATA_DIR, opened on first use - null after closeStore() until the next world is set
+    private static PlayerDataStore getStore() {
+        if (store == null && !storeClosed) {
+            openStore();
+        }
+        return store;
+    }
+    
+    private static void openStore() {
         try {
-            Path playerFile = DATA_DIR.resolve(playerId.toString() + ".json");
-            System.out.println("[Area Mine] [LOAD] Attempting to load from: " + playerFile.toAbsolutePath());
-            if (Files.exists(playerFile)) {
-                String json = Files.readString(playerFile);
-                PlayerData data = gson.fromJson(json, PlayerData.class);
-                System.out.println("[Area Mine] [LOAD] Loaded data: blocksMined=" + data.getBlocksMined() + ", tokens=" + data.getMiningTokens());
-                return data;
-            } else {
-                System.out.println("[Area Mine] [LOAD] File does not exist, creating new data");
+            store = PlayerDataStore.open(DATA_DIR.resolve(STORE_FILE));
+            AreaMineLog.info("STORE", "Loaded " + store.size() + " players from " + store.getFile());
+            importLegacyFiles(store);
+            // Leaderboards cover every stored player, not just the cached ones
+            LeaderboardIndex.rebuild();
+        } catch (IOException e) {
+            AreaMineLog.error("STORE", "Failed to open player store in " + DATA_DIR, e);
+            store = null;
+        }
+    }
+    
+    /**
+     * Close the store after the queued writes (server stopped - call PlayerDataWriter.flush after).
+     * It isn't reopened until setWorldSaveDirectory runs again; saves until then keep the data dirty.
+     */
+    public static void closeStore() {
+        storeClosed = true;
+        if (store != null) {
+            PlayerDataWriter.closeWhenDone(store);
+            store = null;
+        }
+    }
+    
+    /**
+     * Move per-player files from older versions (<uuid>.dat, <uuid>.json) into the store.
+     * Runs once per world, when the store is opened, so bulk scans see every player. Files are only
+     * deleted once their data is in the store.
+     */
+    private static void importLegacyFiles(PlayerDataStore target) {
+        Map<UUID, Path> binary = new HashMap<>();
+        Map<UUID, Path> json = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DATA_DIR, "*.{dat,json}")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean isJson = name.endsWith(".json");
+                UUID playerId;
+                try {
+                    playerId = UUID.fromString(name.substring(0, name.length() - (isJson ? 5 : 4)));
+                } catch (IllegalArgumentException e) {
+                    continue; // Not a player file
+                }
+                (isJson ? json : binary).put(playerId, file);
             }
         } catch (IOException e) {
-            System.err.println("[Area Mine] Failed to load player data: " + e.getMessage());
-            e.printStackTrace();
+            AreaMineLog.error("STORE", "Failed to list old player files in " + DATA_DIR, e);
+            return;
+        }
+        if (binary.isEmpty() && json.isEmpty()) {
+            return;
+        }
+        
+        Set<UUID> playerIds = new HashSet<>(binary.keySet());
+        playerIds.addAll(json.keySet());
+        int imported = 0;
+        for (UUID playerId : playerIds) {
+            Path binaryFile = binary.get(playerId);
+            Path jsonFile = json.get(playerId);
+            try {
+                if (!target.contains(playerId)) {
+                    // .dat was written after the .json it replaced, so it wins
+                    byte[] payload;
+                    if (binaryFile != null) {
+                        payload = Files.readAllBytes(binaryFile);
+                        PlayerDataCodec.decode(payload); // Validate before trusting it
+                    } else {
+                        PlayerData data = gson.fromJson(Files.readString(jsonFile), PlayerData.class);
+                        if (data == null) {
+                            continue;
+                        }
+                        payload = PlayerDataCodec.encode(data);
+                    }
+                    target.write(playerId, payload);
+                    imported++;
+                }
+                if (binaryFile != null) {
+                    Files.deleteIfExists(binaryFile);
+                }
+                if (jsonFile != null) {
+                    Files.deleteIfExists(jsonFile);
+                }
+            } catch (IOException | RuntimeException e) {
+                AreaMineLog.error("STORE", "Failed to import old player data for " + playerId + " - file left in place", e);
+            }
         }
-        return null;
+        final int importedCount = imported;
+        AreaMineLog.info("STORE", () -> "Imported " + importedCount + " players from per-player files");
     }
     
+    private record Prefetch(PlayerDataStore store, CompletableFuture<PlayerData> future, int startTick) {}
+    
     public static class PlayerData {
-        private long lastUseTick = 0;
-        private int blocksMined = 0;
-        private int timesUsed = 0;
-        private int diamondsMined = 0;
-        private boolean disabled = false;
-        private boolean firstUse = true;
-        private boolean earnedEfficiencyExpert = false;
-        private boolean earnedDiamondDigger = false;
+        // Saved fields are package-private so PlayerDataCodec can read and write them directly
+        long lastUseTick = 0;
+        int blocksMined = 0;
+        int timesUsed = 0;
+        int diamondsMined = 0;
+        boolean disabled = false;
+        boolean firstUse = true;
+        boolean earnedEfficiencyExpert = false;
+        boolean earnedDiamondDigger = false;
         
         // New achievement tracking
-        private boolean earnedUnstoppable = false;
-        private boolean earnedExcavator = false;
-        private boolean earnedTokenMillionaire = false;
-        private boolean earnedMasterMiner = false;
-        private int sessionBlocksMined = 0; // Resets on logout
+        boolean earnedUnstoppable = false;
+        boolean earnedExcavator = false;
+        boolean earnedTokenMillionaire = false;
+        boolean earnedMasterMiner = false;
+        int sessionBlocksMined = 0; // Resets on logout
         
         // New features
-        private int miningTokens = 0;
-        private Map<String, Boolean> unlockedUpgrades = new HashMap<>();
-        private Set<String> unlockedPatterns = new HashSet<>(Arrays.asList("cube")); // Cube is default/free
-        private Map<String, Integer> blockTypeStats = new HashMap<>(); // Block ID -> count
-        private Map<String, Integer> dimensionStats = new HashMap<>(); // Dimension ID -> blocks mined
-        private long totalMiningTime = 0; // In ticks
+        int miningTokens = 0;
+        Map<String, Boolean> unlockedUpgrades = new HashMap<>();
+        Set<String> unlockedPatterns = new HashSet<>(Arrays.asList("cube")); // Cube is default/free
+        Map<String, Integer> blockTypeStats = new HashMap<>(); // Block ID -> count
+        Map<String, Integer> dimensionStats = new HashMap<>(); // Dimension ID -> blocks mined
+        long totalMiningTime = 0; // In ticks
         private transient UndoData lastOperation = null; // Don't serialize
+        // Changed since the last save - only dirty players are written (server thread only, not serialized)
+        private transient boolean dirty = false;
+        // Player this cached instance belongs to - null for snapshots and data read for bulk queries
+        private transient UUID owner = null;
+        
+        private void updateRank(LeaderboardIndex.Stat stat, int value) {
+            if (owner != null) {
+                LeaderboardIndex.onChanged(owner, stat, value);
+            }
+        }
+        
+        public boolean isDirty() {
+            return dirty;
+        }
+        
+        public void markDirty() {
+            this.dirty = true;
+        }
+        
+        void clearDirty() {
+            this.dirty = false;
+        }
+        
+        /** Copy of everything that gets saved, for the I/O thread. */
+        PlayerData copy() {
+            PlayerData copy = new PlayerData();
+            copy.lastUseTick = lastUseTick;
+            copy.blocksMined = blocksMined;
+            copy.timesUsed = timesUsed;
+            copy.diamondsMined = diamondsMined;
+            copy.disabled = disabled;
+            copy.firstUse = firstUse;
+            copy.earnedEfficiencyExpert = earnedEfficiencyExpert;
+            copy.earnedDiamondDigger = earnedDiamondDigger;
+            copy.earnedUnstoppable = earnedUnstoppable;
+            copy.earnedExcavator = earnedExcavator;
+            copy.earnedTokenMillionaire = earnedTokenMillionaire;
+            copy.earnedMasterMiner = earnedMasterMiner;
+            copy.sessionBlocksMined = sessionBlocksMined;
+            copy.miningTokens = miningTokens;
+            copy.unlockedUpgrades = unlockedUpgrades != null ? new HashMap<>(unlockedUpgrades) : null;
+            copy.unlockedPatterns = unlockedPatterns != null ? new HashSet<>(unlockedPatterns) : null;
+            copy.blockTypeStats = blockTypeStats != null ? new HashMap<>(blockTypeStats) : null;
+            copy.dimensionStats = dimensionStats != null ? new HashMap<>(dimensionStats) : null;
+            copy.totalMiningTime = totalMiningTime;
+            return copy;
+        }
+        
+        /** Rough heap use - object headers, hash nodes and key strings, not exact JVM layout. */
+        long estimateHeapBytes() {
+            return 96 + estimateKeys(unlockedUpgrades != null ? unlockedUpgrades.keySet() : null)
+                + estimateKeys(unlockedPatterns)
+                + estimateKeys(blockTypeStats != null ? blockTypeStats.keySet() : null)
+                + estimateKeys(dimensionStats != null ? dimensionStats.keySet() : null);
+        }
+        
+        // HashMap/HashSet: table + per entry a node, a boxed value and the key string
+        private static long estimateKeys(Collection<String> keys) {
+            if (keys == null) {
+                return 0;
+            }
+            long bytes = 64;
+            for (String key : keys) {
+                bytes += 32 + 8 + 16 + 40 + key.length();
+            }
+            return bytes;
+        }
         
         public boolean isOnCooldown(long currentTick, int cooldownTicks) {
             if (cooldownTicks <= 0) return false;
@@ -248,36 +666,50 @@ public class PlayerDataManager {
         public void updateLastUse(long currentTick) {
             this.lastUseTick = currentTick;
             this.timesUsed++;
+            this.dirty = true;
         }
         
         public void addBlocksMined(int count) {
             this.blocksMined += count;
             this.sessionBlocksMined += count;
+            this.dirty = true;
+            updateRank(LeaderboardIndex.Stat.BLOCKS, blocksMined);
         }
         
         public void resetSessionBlocks() {
-            this.sessionBlocksMined = 0;
+            if (sessionBlocksMined != 0) {
+                this.sessionBlocksMined = 0;
+                this.dirty = true;
+            }
         }
         
         public void addDiamondsMined(int count) {
             this.diamondsMined += count;
+            this.dirty = true;
+            updateRank(LeaderboardIndex.Stat.DIAMONDS, diamondsMined);
         }
         
         public void addBlockTypeStats(String blockId, int count) {
             blockTypeStats.put(blockId, blockTypeStats.getOrDefault(blockId, 0) + count);
+            this.dirty = true;
         }
         
         public void addDimensionStats(String dimensionId, int count) {
             dimensionStats.put(dimensionId, dimensionStats.getOrDefault(dimensionId, 0) + count);
+            this.dirty = true;
         }
         
         public void addMiningTokens(int tokens) {
             this.miningTokens += tokens;
+            this.dirty = true;
+            updateRank(LeaderboardIndex.Stat.TOKENS, miningTokens);
         }
         
         public boolean spendTokens(int cost) {
             if (miningTokens >= cost) {
                 miningTokens -= cost;
+                this.dirty = true;
+                updateRank(LeaderboardIndex.Stat.TOKENS, miningTokens);
                 return true;
             }
             return false;
@@ -285,6 +717,7 @@ public class PlayerDataManager {
         
         public void unlockUpgrade(String upgradeName) {
             unlockedUpgrades.put(upgradeName, true);
+            this.dirty = true;
         }
         
         public boolean hasUpgrade(String upgradeName) {
@@ -293,6 +726,7 @@ public class PlayerDataManager {
         
         public void unlockPattern(String patternName) {
             unlockedPatterns.add(patternName.toLowerCase());
+            this.dirty = true;
         }
         
         public boolean hasPattern(String patternName) {
@@ -333,27 +767,27 @@ public class PlayerDataManager {
         public Map<String, Integer> getBlockTypeStats() { return blockTypeStats; }
         public Map<String, Integer> getDimensionStats() { return dimensionStats; }
         public long getTotalMiningTime() { return totalMiningTime; }
-        public void addMiningTime(long ticks) { this.totalMiningTime += ticks; }
+        public void addMiningTime(long ticks) { this.totalMiningTime += ticks; this.dirty = true; }
         
         public boolean isDisabled() { return disabled; }
-        public void setDisabled(boolean disabled) { this.disabled = disabled; }
+        public void setDisabled(boolean disabled) { this.disabled = disabled; this.dirty = true; }
         public long getLastUseTick() { return lastUseTick; }
         public boolean isFirstUse() { return firstUse; }
-        public void setFirstUse(boolean firstUse) { this.firstUse = firstUse; }
+        public void setFirstUse(boolean firstUse) { this.firstUse = firstUse; this.dirty = true; }
         public boolean hasEarnedEfficiencyExpert() { return earnedEfficiencyExpert; }
-        public void setEarnedEfficiencyExpert(boolean earned) { this.earnedEfficiencyExpert = earned; }
+        public void setEarnedEfficiencyExpert(boolean earned) { this.earnedEfficiencyExpert = earned; this.dirty = true; }
         public boolean hasEarnedDiamondDigger() { return earnedDiamondDigger; }
-        public void setEarnedDiamondDigger(boolean earned) { this.earnedDiamondDigger = earned; }
+        public void setEarnedDiamondDigger(boolean earned) { this.earnedDiamondDigger = earned; this.dirty = true; }
         
         // New achievement getters/setters
         public boolean hasEarnedUnstoppable() { return earnedUnstoppable; }
-        public void setEarnedUnstoppable(boolean earned) { this.earnedUnstoppable = earned; }
+        public void setEarnedUnstoppable(boolean earned) { this.earnedUnstoppable = earned; this.dirty = true; }
         public boolean hasEarnedExcavator() { return earnedExcavator; }
-        public void setEarnedExcavator(boolean earned) { this.earnedExcavator = earned; }
+        public void setEarnedExcavator(boolean earned) { this.earnedExcavator = earned; this.dirty = true; }
         public boolean hasEarnedTokenMillionaire() { return earnedTokenMillionaire; }
-        public void setEarnedTokenMillionaire(boolean earned) { this.earnedTokenMillionaire = earned; }
+        public void setEarnedTokenMillionaire(boolean earned) { this.earnedTokenMillionaire = earned; this.dirty = true; }
         public boolean hasEarnedMasterMiner() { return earnedMasterMiner; }
-        public void setEarnedMasterMiner(boolean earned) { this.earnedMasterMiner = earned; }
+        public void setEarnedMasterMiner(boolean earned) { this.earnedMasterMiner = earned; this.dirty = true; }
         public int getSessionBlocksMined() { return sessionBlocksMined; }
         public Map<String, Boolean> getUnlockedUpgrades() { return unlockedUpgrades; }
         
@@ -361,25 +795,107 @@ public class PlayerDataManager {
         public void ensureDefaultPattern() {
             if (unlockedPatterns == null) {
                 unlockedPatterns = new HashSet<>(Arrays.asList("cube"));
+                dirty = true;
             } else if (unlockedPatterns.isEmpty()) {
                 unlockedPatterns.add("cube");
+                dirty = true;
             }
         }
     }
     
+    /**
+     * Everything needed to undo one activation.
+     *
+     * Blocks are stored as two parallel primitive arrays - packed position (BlockPos.asLong) and raw
+     * state id (Block.getRawIdFromState) - plus an open-addressed index from position to entry, so
+     * add, lookup and replace are constant time and each block costs about 12 bytes plus its index slot.
+     * Each position is recorded once; the first state saved for it is what undo restores.
+     */
     public static class UndoData {
-        public List<BlockStateData> blocks = new ArrayList<>();
+        private static final int INITIAL_CAPACITY = 16;
+        
         public List<UUID> itemEntities = new ArrayList<>(); // Track dropped item entities
         public Map<String, Integer> inventoryItems = new HashMap<>(); // Track items added to inventory (item ID -> count)
         public Map<String, Integer> inventoryBefore = new HashMap<>(); // CRITICAL: Track player's inventory BEFORE breaking blocks (item ID -> count)
         public long timestamp;
         
+        private long[] positions = new long[INITIAL_CAPACITY];
+        private int[] stateIds = new int[INITIAL_CAPACITY];
+        private int size = 0;
+        
+        // Hash slots holding entry index + 1 (0 = empty), keys are read back from positions
+        // Kept at most half full so probe chains stay short
+        private int[] index = new int[INITIAL_CAPACITY * 2];
+        
         public UndoData() {
             this.timestamp = System.currentTimeMillis();
         }
         
+        public int size() {
+            return size;
+        }
+        
+        public boolean isEmpty() {
+            return size == 0;
+        }
+        
+        /** Rough heap use - the block arrays dominate for large activations. */
+        long estimateHeapBytes() {
+            return 64 + positions.length * 8L + stateIds.length * 4L + index.length * 4L
+                + itemEntities.size() * 40L + (inventoryItems.size() + inventoryBefore.size()) * 96L;
+        }
+        
         public void addBlock(BlockPos pos, BlockState state) {
-            blocks.add(new BlockStateData(pos, state));
+            addBlock(pos.asLong(), state);
+        }
+        
+        /** Record a block. Ignored if the position is already recorded (its first state is kept). */
+        public void addBlock(long packedPos, BlockState state) {
+            int slot = findSlot(packedPos);
+            if (index[slot] != 0) {
+                return;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                stateIds = Arrays.copyOf(stateIds, size * 2);
+            }
+            positions[size] = packedPos;
+            stateIds[size] = Block.getRawIdFromState(state);
+            size++;
+            index[slot] = size;
+            if (size * 2 > index.length) {
+                rehash(index.length * 2);
+            }
+        }
+        
+        public boolean containsBlock(long packedPos) {
+            return index[findSlot(packedPos)] != 0;
+        }
+        
+        /** The saved state for a position, or null if it isn't recorded. */
+        public BlockState getState(long packedPos) {
+            int entry = index[findSlot(packedPos)];
+            return entry != 0 ? Block.getStateFromRawId(stateIds[entry - 1]) : null;
+        }
+        
+        /** Replace the saved state of a recorded position. Returns false if it isn't recorded. */
+        public boolean setState(long packedPos, BlockState state) {
+            int entry = index[findSlot(packedPos)];
+            if (entry == 0) {
+                return false;
+            }
+            stateIds[entry - 1] = Block.getRawIdFromState(state);
+            return true;
+        }
+        
+        /** Packed position of the i-th recorded block (in the order they were added). */
+        public long getPosAt(int i) {
+            return positions[i];
+        }
+        
+        /** Saved state of the i-th recorded block. */
+        public BlockState getStateAt(int i) {
+            return Block.getStateFromRawId(stateIds[i]);
         }
         
         public void addItemEntity(UUID entityId) {
@@ -390,15 +906,26 @@ public class PlayerDataManager {
             inventoryItems.put(itemId, inventoryItems.getOrDefault(itemId, 0) + count);
         }
         
-        public static class BlockStateData {
-            public BlockPos pos;
-            public BlockState state;
-            
-            public BlockStateData(BlockPos pos, BlockState state) {
-                this.pos = pos;
-                this.state = state;
+        // Slot holding packedPos, or the empty slot where it would go (linear probing)
+        private int findSlot(long packedPos) {
+            int mask = index.length - 1;
+            int slot = (int) HashCommon.mix(packedPos) & mask;
+            while (index[slot] != 0 && positions[index[slot] - 1] != packedPos) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+        
+        private void rehash(int capacity) {
+            index = new int[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = (int) HashCommon.mix(positions[i]) & mask;
+                while (index[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                index[slot] = i + 1;
             }
         }
     }
 }
-
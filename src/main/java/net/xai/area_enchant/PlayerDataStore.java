@@ -0,0 +1,293 @@
+package net.xai.area_enchant;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * All player data of a world in one append-only file (data/area_mine/players.amr).
+ *
+ * Layout: an 8-byte header (magic "AMRS", version), then records of
+ *   UUID (16 bytes) | payload length (4) | CRC32 of the payload (4) | payload (PlayerDataCodec bytes)
+ *
+ * A save appends a new record; the newest record for a UUID wins. The record headers are the
+ * file's index: open() walks them once (checking each CRC) and keeps UUID -> offset in memory, so
+ * lookups are a map get plus one read, and a torn record at the end from a crash is cut off. Reads
+ * go through a memory-mapped view of the file when config.playerDataMmapReads is on. Once records
+ * superseded by newer ones take up more than half the file, compactIfNeeded() rewrites it with only
+ * the live records. A mapping is only released when it's garbage collected, and Windows refuses to
+ * replace a mapped file - a failed compaction waits until the file has doubled before trying again.
+ *
+ * Thread-safe: the I/O thread writes and compacts, the server thread reads.
+ */
+final class PlayerDataStore implements Closeable {
+    private static final int MAGIC = 0x414D5253; // "AMRS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 24;
+    // Don't bother compacting small files
+    private static final long MIN_COMPACT_SIZE = 1L << 20;
+
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer mapped; // Covers [0, mapped.capacity()) - remapped when the file grew past it
+    private final Map<UUID, Entry> index = new HashMap<>();
+    private long size;      // End of the last valid record
+    private long liveBytes; // Bytes of records still in the index, headers included
+    private long nextCompactSize = MIN_COMPACT_SIZE; // Raised after a failed compaction so it isn't retried on every write
+
+    private PlayerDataStore(Path file) {
+        this.file = file;
+    }
+
+    /** Open (or create) the store and load its index. */
+    static PlayerDataStore open(Path file) throws IOException {
+        PlayerDataStore store = new PlayerDataStore(file);
+        Files.createDirectories(file.getParent());
+        store.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            store.loadIndex();
+        } catch (IOException | RuntimeException e) {
+            store.channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    synchronized boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized boolean contains(UUID playerId) {
+        return index.containsKey(playerId);
+    }
+
+    /** Payload of the newest record for playerId, or null if there is none. */
+    synchronized byte[] read(UUID playerId) throws IOException {
+        Entry entry = index.get(playerId);
+        return entry != null ? readPayload(entry) : null;
+    }
+
+    /** Append a record for playerId. */
+    synchronized void write(UUID playerId, byte[] payload) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+        record.putLong(playerId.getMostSignificantBits());
+        record.putLong(playerId.getLeastSignificantBits());
+        record.putInt(payload.length);
+        record.putInt(crc(payload));
+        record.put(payload);
+        record.flip();
+
+        long offset = size;
+        writeFully(channel, record, offset);
+        size = offset + record.capacity();
+
+        Entry previous = index.put(playerId, new Entry(offset, payload.length));
+        if (previous != null) {
+            liveBytes -= RECORD_HEADER_SIZE + previous.length;
+        }
+        liveBytes += RECORD_HEADER_SIZE + payload.length;
+    }
+
+    /** Every stored player with their newest payload - one pass over the index. */
+    synchronized void forEach(BiConsumer<UUID, byte[]> consumer) throws IOException {
+        for (Map.Entry<UUID, Entry> entry : index.entrySet()) {
+            consumer.accept(entry.getKey(), readPayload(entry.getValue()));
+        }
+    }
+
+    /**
+     * Rewrite the file without superseded records once they take up more than half of it.
+     * @return true if the file was compacted
+     */
+    synchronized boolean compactIfNeeded() throws IOException {
+        long dead = size - HEADER_SIZE - liveBytes;
+        if (size < nextCompactSize || dead <= liveBytes) {
+            return false;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            nextCompactSize = size * 2;
+            throw e;
+        }
+        nextCompactSize = MIN_COMPACT_SIZE;
+        return true;
+    }
+
+    private void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        Map<UUID, Entry> newIndex = new HashMap<>(index.size() * 2);
+        long newSize;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header(), 0);
+            long position = HEADER_SIZE;
+            for (Map.Entry<UUID, Entry> entry : index.entrySet()) {
+                Entry old = entry.getValue();
+                int recordSize = RECORD_HEADER_SIZE + old.length;
+                ByteBuffer record = ByteBuffer.allocate(recordSize);
+                readFully(old.offset, record);
+                record.flip();
+                writeFully(out, record, position);
+                newIndex.put(entry.getKey(), new Entry(position, old.length));
+                position += recordSize;
+            }
+            out.force(true);
+            newSize = position;
+        }
+
+        // Swap the files. Dropping the mapping doesn't unmap it (that happens when it's collected), so with
+        // mmap reads on, Windows may still refuse the move - the old file is kept then
+        mapped = null;
+        channel.close();
+        try {
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Keep using the uncompacted file
+            Files.deleteIfExists(temp);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            throw e;
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        index.putAll(newIndex);
+        size = newSize;
+        liveBytes = newSize - HEADER_SIZE;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapped = null;
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE) {
+            // New file (or one that died before its header was written)
+            channel.truncate(0);
+            writeFully(channel, header(), 0);
+            size = HEADER_SIZE;
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(0, header);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException(file + " is not an Area Mine player store");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported player store version " + version + " in " + file);
+        }
+
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        long position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= fileSize) {
+            recordHeader.clear();
+            readFully(position, recordHeader);
+            recordHeader.flip();
+            UUID playerId = new UUID(recordHeader.getLong(), recordHeader.getLong());
+            int length = recordHeader.getInt();
+            int crc = recordHeader.getInt();
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > fileSize) {
+                break; // Torn write at the end
+            }
+            // Read through the channel, not a mapping - the tail may be truncated below
+            byte[] payload = new byte[length];
+            readFully(position + RECORD_HEADER_SIZE, ByteBuffer.wrap(payload));
+            if (crc(payload) != crc) {
+                break;
+            }
+            Entry previous = index.put(playerId, new Entry(position, length));
+            if (previous != null) {
+                liveBytes -= RECORD_HEADER_SIZE + previous.length;
+            }
+            liveBytes += RECORD_HEADER_SIZE + length;
+            position += RECORD_HEADER_SIZE + length;
+        }
+
+        if (position < fileSize) {
+            long lost = fileSize - position;
+            AreaMineLog.warn("STORE", () -> "Dropping " + lost + " bytes of incomplete records at the end of " + file);
+            channel.truncate(position);
+        }
+        size = position;
+    }
+
+    private byte[] readPayload(Entry entry) throws IOException {
+        byte[] payload = new byte[entry.length];
+        long payloadOffset = entry.offset + RECORD_HEADER_SIZE;
+        if (AreaEnchantMod.config.playerDataMmapReads) {
+            if (mapped == null || payloadOffset + entry.length > mapped.capacity()) {
+                // Map everything written so far - appends past it trigger the next remap
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            mapped.get((int) payloadOffset, payload);
+        } else {
+            readFully(payloadOffset, ByteBuffer.wrap(payload));
+        }
+        return payload;
+    }
+
+    private void readFully(long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.flip();
+        return header;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private record Entry(long offset, int length) {}
+}
@@ -0,0 +1,153 @@
+package net.xai.area_enchant;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind persistence for player data.
+ *
+ * The server thread only takes a snapshot of a dirty PlayerData (a few map copies) and queues it;
+ * encoding and appending to the PlayerDataStore happen on a single background thread, and so does
+ * compacting the store. Writes are coalesced per player - if a player is saved again before their
+ * previous write ran, only the newest snapshot is written. A snapshot stays queued (and is what loads
+ * see) until it is on disk; a failed write is retried after RETRY_DELAY_SECONDS for as long as its
+ * store is open. Prefetches for players who are logging in run on the same thread (see load()).
+ */
+public final class PlayerDataWriter {
+    // Newest snapshot per player that hasn't been written yet - removed only once it is on disk
+    private static final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+    private static final long RETRY_DELAY_SECONDS = 10;
+
+    // One thread - writes for the same player run in the order they were queued
+    private static final ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Area Mine Data IO");
+        thread.setDaemon(true); // Shutdown waits through flush() instead
+        return thread;
+    });
+
+    private PlayerDataWriter() {
+    }
+
+    /**
+     * Queue a write of snapshot to store. The snapshot must not be modified afterwards.
+     * Called on the server thread.
+     */
+    static void schedule(UUID playerId, PlayerDataStore store, PlayerDataManager.PlayerData snapshot) {
+        if (pending.put(playerId, new Pending(store, snapshot)) == null) {
+            io.execute(() -> write(playerId));
+        }
+        // Otherwise a write for this player is already queued and will pick up the newer snapshot
+    }
+
+    /**
+     * Snapshot queued for store that hasn't reached the disk yet, or null.
+     * Loads must check this first, or they'd read the record from before the write.
+     */
+    static PlayerDataManager.PlayerData getPending(UUID playerId, PlayerDataStore store) {
+        Pending write = pending.get(playerId);
+        return write != null && write.store == store ? write.snapshot : null;
+    }
+
+    /**
+     * Run a load on the I/O thread. It runs after every write queued before it, so it never reads an
+     * older record than the newest save.
+     */
+    static <T> CompletableFuture<T> load(Supplier<T> loader) {
+        return CompletableFuture.supplyAsync(loader, io);
+    }
+
+    /** Close store once every write queued before this call has gone through (world switch). */
+    static void closeWhenDone(PlayerDataStore store) {
+        io.execute(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                AreaMineLog.error("SAVE", "Failed to close " + store.getFile(), e);
+            }
+        });
+    }
+
+    /**
+     * Wait until everything queued so far is on disk (server stopping).
+     * Waits at most timeoutMillis; whatever is still queued after that is reported and left to the
+     * daemon thread.
+     */
+    public static void flush(long timeoutMillis) {
+        Future<?> marker = io.submit(() -> { });
+        try {
+            marker.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (!pending.isEmpty()) {
+                AreaMineLog.warn("SAVE", pending.size() + " player data writes failed and are still waiting for a retry");
+            }
+        } catch (TimeoutException e) {
+            AreaMineLog.warn("SAVE", "Player data flush timed out, " + pending.size() + " writes still queued");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            AreaMineLog.error("SAVE", "Player data flush failed", e.getCause());
+        }
+    }
+
+    public static int getPendingCount() {
+        return pending.size();
+    }
+
+    private static void write(UUID playerId) {
+        // CRITICAL: The snapshot stays in pending until the append is done - a load in between must
+        // still find it, or it reads the older record and that stale copy gets saved over the newer one
+        Pending write = pending.get(playerId);
+        while (write != null) {
+            if (!writeOne(playerId, write)) {
+                return;
+            }
+            if (pending.remove(playerId, write)) {
+                return;
+            }
+            // A newer snapshot was queued while this one was written - schedule() left it to us
+            write = pending.get(playerId);
+        }
+    }
+
+    // Append one snapshot. @return false if it failed (and a retry is scheduled, or it was dropped)
+    private static boolean writeOne(UUID playerId, Pending write) {
+        MiningMetrics.Span span = MiningMetrics.begin(MiningMetrics.Stage.SAVE);
+        try {
+            write.store.write(playerId, PlayerDataManager.encode(write.snapshot));
+            span.end(0);
+            AreaMineLog.debug("SAVE", () -> "Saved " + playerId + " (blocksMined=" +
+                write.snapshot.getBlocksMined() + ", tokens=" + write.snapshot.getMiningTokens() + ")");
+        } catch (IOException | RuntimeException e) {
+            if (!write.store.isOpen()) {
+                // The world was closed - nothing left to write to
+                pending.remove(playerId, write);
+                AreaMineLog.error("SAVE", "Failed to save player data for " + playerId + ", store already closed", e);
+                return false;
+            }
+            // Stays queued (loads keep seeing it); newer snapshots replace it before the retry runs
+            AreaMineLog.error("SAVE", "Failed to save player data for " + playerId + ", retrying in " + RETRY_DELAY_SECONDS + "s", e);
+            CompletableFuture.delayedExecutor(RETRY_DELAY_SECONDS, TimeUnit.SECONDS, io).execute(() -> write(playerId));
+            return false;
+        }
+        try {
+            if (write.store.compactIfNeeded()) {
+                AreaMineLog.info("SAVE", () -> "Compacted " + write.store.getFile() + " (" + write.store.size() + " players)");
+            }
+        } catch (IOException e) {
+            AreaMineLog.error("SAVE", "Failed to compact " + write.store.getFile(), e);
+        }
+        return true;
+    }
+
+    // PlayerData has no equals(), so pending.remove(playerId, write) only matches this very snapshot
+    private record Pending(PlayerDataStore store, PlayerDataManager.PlayerData snapshot) {}
+}
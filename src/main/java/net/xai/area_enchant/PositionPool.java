@@ -0,0 +1,99 @@
+package net.xai.area_enchant;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per-thread pool of primitive position collections.
+ * Positions are packed with BlockPos.asLong, so a selection of N blocks is N longs in an
+ * open-addressed table / array instead of N BlockPos objects plus N hash map nodes.
+ *
+ * Everything acquired here must be released by the same thread once it's no longer used
+ * (activations and batched breaking both run on the server thread). Released collections
+ * are cleared and handed out again by the next activation.
+ */
+public final class PositionPool {
+    // Enough for the nested acquires of one activation (flood fill + selection + undo)
+    private static final int MAX_POOLED = 8;
+
+    // Collections that grew past this are trimmed on release so one huge activation doesn't pin memory forever
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    private static final ThreadLocal<PositionPool> POOL = ThreadLocal.withInitial(PositionPool::new);
+
+    private final ArrayDeque<LongOpenHashSet> sets = new ArrayDeque<>();
+    private final ArrayDeque<LongArrayFIFOQueue> queues = new ArrayDeque<>();
+    private final ArrayDeque<LongArrayList> lists = new ArrayDeque<>();
+
+    private PositionPool() {
+    }
+
+    public static LongOpenHashSet acquireSet() {
+        LongOpenHashSet set = POOL.get().sets.pollFirst();
+        return set != null ? set : new LongOpenHashSet();
+    }
+
+    public static LongArrayFIFOQueue acquireQueue() {
+        LongArrayFIFOQueue queue = POOL.get().queues.pollFirst();
+        return queue != null ? queue : new LongArrayFIFOQueue();
+    }
+
+    public static LongArrayList acquireList() {
+        LongArrayList list = POOL.get().lists.pollFirst();
+        return list != null ? list : new LongArrayList();
+    }
+
+    public static void release(LongOpenHashSet set) {
+        if (set == null) {
+            return;
+        }
+        PositionPool pool = POOL.get();
+        if (pool.sets.size() >= MAX_POOLED || containsInstance(pool.sets, set)) {
+            return;
+        }
+        boolean oversized = set.size() > MAX_RETAINED_CAPACITY;
+        set.clear();
+        if (oversized) {
+            set.trim(MAX_RETAINED_CAPACITY);
+        }
+        pool.sets.addFirst(set);
+    }
+
+    public static void release(LongArrayFIFOQueue queue) {
+        if (queue == null) {
+            return;
+        }
+        PositionPool pool = POOL.get();
+        if (pool.queues.size() >= MAX_POOLED || containsInstance(pool.queues, queue)) {
+            return;
+        }
+        queue.clear();
+        pool.queues.addFirst(queue);
+    }
+
+    public static void release(LongArrayList list) {
+        if (list == null) {
+            return;
+        }
+        PositionPool pool = POOL.get();
+        if (pool.lists.size() >= MAX_POOLED || containsInstance(pool.lists, list)) {
+            return;
+        }
+        list.clear();
+        list.trim(MAX_RETAINED_CAPACITY);
+        pool.lists.addFirst(list);
+    }
+
+    // Identity check - collection equals() compares contents, and every pooled collection is empty
+    private static boolean containsInstance(ArrayDeque<?> pooled, Object instance) {
+        for (Object o : pooled) {
+            if (o == instance) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
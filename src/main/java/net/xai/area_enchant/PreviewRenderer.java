@@ -0,0 +1,179 @@
+package net.xai.area_enchant;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.fabricmc.fabric.api.client.rendering.v1.world.WorldRenderContext;
+import net.fabricmc.fabric.api.client.rendering.v1.world.WorldRenderEvents;
+import net.minecraft.client.render.RenderLayers;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Draws the Area Mine preview as the outline of the selection's outer hull.
+ *
+ * Faces between two selected blocks are dropped, and so are edges inside a flat surface, so what's
+ * left are the silhouette and crease lines of the whole shape - a 9x9x9 cube is its 12 outer edges,
+ * not 729 boxes. The lines are built once per selection (MinecraftPreview bumps its version when it
+ * changes), merged into runs along each axis and kept as one float array relative to the selection's
+ * first block; a frame only translates to it and writes them into the lines layer, which goes out
+ * as a single draw.
+ *
+ * Client render thread only.
+ */
+public final class PreviewRenderer {
+    private static final Direction.Axis[] AXES = Direction.Axis.values();
+
+    private static int builtVersion = -1;
+    private static BlockPos origin = BlockPos.ORIGIN;
+    // x1, y1, z1, x2, y2, z2 per line, relative to origin
+    private static final FloatArrayList lines = new FloatArrayList();
+
+    private PreviewRenderer() {
+    }
+
+    public static void register() {
+        WorldRenderEvents.BEFORE_DEBUG_RENDER.register(PreviewRenderer::render);
+    }
+
+    private static void render(WorldRenderContext context) {
+        if (!MinecraftPreview.isVisible() || AreaEnchantMod.config == null) {
+            return;
+        }
+        if (MinecraftPreview.getSelectionVersion() != builtVersion) {
+            rebuild(MinecraftPreview.getSelection());
+            builtVersion = MinecraftPreview.getSelectionVersion();
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        int color = getColorForPattern(MinecraftPreview.getSelectionPattern());
+        float lineWidth = switch (AreaEnchantMod.config.previewDensity.toLowerCase()) {
+            case "high" -> 4.0f;
+            case "low" -> 1.5f;
+            default -> 2.5f; // medium
+        };
+
+        Vec3d camera = context.gameRenderer().getCamera().getCameraPos();
+        MatrixStack matrices = context.matrices();
+        matrices.push();
+        matrices.translate(origin.getX() - camera.x, origin.getY() - camera.y, origin.getZ() - camera.z);
+        MatrixStack.Entry entry = matrices.peek();
+        VertexConsumer buffer = context.consumers().getBuffer(RenderLayers.lines());
+        float[] data = lines.elements();
+        for (int i = 0; i < lines.size(); i += 6) {
+            // Lines only run along one axis, so the normal is that axis
+            float nx = data[i + 3] - data[i];
+            float ny = data[i + 4] - data[i + 1];
+            float nz = data[i + 5] - data[i + 2];
+            float length = Math.max(Math.abs(nx), Math.max(Math.abs(ny), Math.abs(nz)));
+            nx /= length;
+            ny /= length;
+            nz /= length;
+            buffer.vertex(entry, data[i], data[i + 1], data[i + 2]).color(color).normal(entry, nx, ny, nz).lineWidth(lineWidth);
+            buffer.vertex(entry, data[i + 3], data[i + 4], data[i + 5]).color(color).normal(entry, nx, ny, nz).lineWidth(lineWidth);
+        }
+        matrices.pop();
+    }
+
+    // Outline of the hull of blocks, as lines relative to the first block
+    private static void rebuild(LongArrayList blocks) {
+        lines.clear();
+        if (blocks.isEmpty()) {
+            return;
+        }
+        origin = BlockPos.fromLong(blocks.getLong(0));
+
+        LongOpenHashSet selected = new LongOpenHashSet(blocks);
+        // Unit edges by the corner they start at, one set per axis they run along
+        LongOpenHashSet[] edges = new LongOpenHashSet[AXES.length];
+        for (int a = 0; a < edges.length; a++) {
+            edges[a] = new LongOpenHashSet();
+        }
+
+        for (int i = 0; i < blocks.size(); i++) {
+            long block = blocks.getLong(i);
+            for (Direction face : Direction.values()) {
+                if (selected.contains(BlockPos.offset(block, face))) {
+                    continue; // Shared with a selected block - inside the hull
+                }
+                for (Direction side : Direction.values()) {
+                    if (side.getAxis() == face.getAxis()) {
+                        continue;
+                    }
+                    long beside = BlockPos.offset(block, side);
+                    // The face carries on flat into the next block - no edge between them
+                    if (selected.contains(beside) && !selected.contains(BlockPos.offset(beside, face))) {
+                        continue;
+                    }
+                    // The edge runs along the remaining axis, from the corner on the face and side
+                    long corner = block;
+                    if (face.getDirection() == Direction.AxisDirection.POSITIVE) {
+                        corner = BlockPos.offset(corner, face);
+                    }
+                    if (side.getDirection() == Direction.AxisDirection.POSITIVE) {
+                        corner = BlockPos.offset(corner, side);
+                    }
+                    edges[thirdAxis(face.getAxis(), side.getAxis()).ordinal()].add(corner);
+                }
+            }
+        }
+
+        // Join unit edges that line up into one line each
+        for (Direction.Axis axis : AXES) {
+            Direction step = Direction.from(axis, Direction.AxisDirection.POSITIVE);
+            LongOpenHashSet set = edges[axis.ordinal()];
+            LongIterator iterator = set.iterator();
+            while (iterator.hasNext()) {
+                long start = iterator.nextLong();
+                if (set.contains(BlockPos.offset(start, step.getOpposite()))) {
+                    continue; // Not the first edge of its run
+                }
+                long end = BlockPos.offset(start, step);
+                while (set.contains(end)) {
+                    end = BlockPos.offset(end, step);
+                }
+                addLine(start, end);
+            }
+        }
+    }
+
+    private static void addLine(long start, long end) {
+        lines.add(BlockPos.unpackLongX(start) - origin.getX());
+        lines.add(BlockPos.unpackLongY(start) - origin.getY());
+        lines.add(BlockPos.unpackLongZ(start) - origin.getZ());
+        lines.add(BlockPos.unpackLongX(end) - origin.getX());
+        lines.add(BlockPos.unpackLongY(end) - origin.getY());
+        lines.add(BlockPos.unpackLongZ(end) - origin.getZ());
+    }
+
+    private static Direction.Axis thirdAxis(Direction.Axis a, Direction.Axis b) {
+        for (Direction.Axis axis : AXES) {
+            if (axis != a && axis != b) {
+                return axis;
+            }
+        }
+        throw new IllegalArgumentException("Same axis twice: " + a);
+    }
+
+    /**
+     * Outline color (ARGB) per mining pattern - the colors of the old particle preview.
+     * Cube: Purple, Sphere: Orange, Tunnel: Yellow, Cross: Green, Layer: Cyan, Vertical: Magenta
+     */
+    private static int getColorForPattern(String pattern) {
+        return switch (pattern.toLowerCase()) {
+            case "cube" -> 0xFFA64DFF;
+            case "sphere" -> 0xFFFF9933;
+            case "tunnel" -> 0xFFFFD633;
+            case "cross" -> 0xFF66E066;
+            case "layer" -> 0xFF4DE6E6;
+            case "vertical" -> 0xFFD94DFF;
+            default -> 0xFFA64DFF;
+        };
+    }
+}
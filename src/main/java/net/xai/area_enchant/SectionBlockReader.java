@@ -0,0 +1,78 @@
+package net.xai.area_enchant;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * Reads block states straight from chunk section palettes for a selection pass.
+ * world.getBlockState() redoes the chunk lookup and section indexing for every call; this looks
+ * each section up once (plus a fast path for the last one used, since patterns are generated
+ * layer by layer) and answers all-air sections without touching their palette at all.
+ *
+ * Only valid while the world isn't modified - create one per selection pass, on the server thread.
+ */
+public class SectionBlockReader implements BlockStateLookup {
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+    private static final BlockState VOID_AIR = Blocks.VOID_AIR.getDefaultState();
+
+    private final World world;
+    private final Long2ObjectOpenHashMap<ChunkSection> sections = new Long2ObjectOpenHashMap<>();
+    private long lastSectionKey = Long.MIN_VALUE;
+    private ChunkSection lastSection = null;
+
+    public SectionBlockReader(World world) {
+        this.world = world;
+    }
+
+    @Override
+    public BlockState getBlockState(int x, int y, int z) {
+        if (world.isOutOfHeightLimit(y)) {
+            return VOID_AIR; // Same as World.getBlockState outside the build height
+        }
+        ChunkSection section = getSection(x >> 4, y >> 4, z >> 4);
+        if (section == null || section.isEmpty()) {
+            return AIR; // All-air section - nothing to read
+        }
+        return section.getBlockState(x & 15, y & 15, z & 15);
+    }
+
+    /** Number of distinct sections looked up so far (for debugging/benchmarks). */
+    public int getSectionLookups() {
+        return sections.size();
+    }
+
+    private ChunkSection getSection(int sectionX, int sectionY, int sectionZ) {
+        long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+        if (key == lastSectionKey) {
+            return lastSection;
+        }
+
+        ChunkSection section;
+        if (sections.containsKey(key)) {
+            section = sections.get(key);
+        } else {
+            section = loadSection(sectionX, sectionY, sectionZ);
+            sections.put(key, section); // null is cached too (section outside the chunk's array)
+        }
+
+        lastSectionKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    private ChunkSection loadSection(int sectionX, int sectionY, int sectionZ) {
+        // Same chunk access as World.getBlockState, just done once per section instead of once per block
+        WorldChunk chunk = world.getChunk(sectionX, sectionZ);
+        ChunkSection[] sectionArray = chunk.getSectionArray();
+        int index = world.sectionCoordToIndex(sectionY);
+        if (index < 0 || index >= sectionArray.length) {
+            return null;
+        }
+        return sectionArray[index];
+    }
+}
@@ -0,0 +1,19 @@
+package net.xai.area_enchant.mixin;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.xai.area_enchant.MinecraftPreview;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ClientWorld.class)
+public abstract class ClientWorldMixin {
+    // Every block change the client applies (server updates and its own break predictions) ends up here
+    @Inject(method = "updateListeners", at = @At("HEAD"))
+    private void onBlockUpdate(BlockPos pos, BlockState oldState, BlockState newState, int flags, CallbackInfo ci) {
+        MinecraftPreview.onBlockChanged(pos);
+    }
+}
@@ -1,15 +1,14 @@
 package net.xai.area_enchant.mixin;
 
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.enchantment.Enchantment;
 import net.minecraft.enchantment.EnchantmentHelper;
 import net.minecraft.entity.EquipmentSlot;
-import net.minecraft.entity.ItemEntity;
 import net.minecraft.item.ItemStack;
 import net.minecraft.network.packet.c2s.play.PlayerActionC2SPacket;
 import net.minecraft.particle.ParticleTypes;
-import net.minecraft.registry.Registries;
 import net.minecraft.registry.RegistryKeys;
 import net.minecraft.registry.entry.RegistryEntry;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -34,8 +33,7 @@ import java.util.*;
 @Mixin(ServerPlayerInteractionManager.class)
 public abstract class ServerPlayerInteractionManagerMixin {
     static {
-        System.out.println("[Area Mine] ServerPlayerInteractionManagerMixin class loaded!");
-        System.out.println("[Area Mine] Thread: " + Thread.currentThread().getName());
+        AreaMineLog.debug("MIXIN", () -> "ServerPlayerInteractionManagerMixin class loaded on " + Thread.currentThread().getName());
     }
     @Shadow public abstract boolean tryBreakBlock(BlockPos pos);
 
@@ -60,25 +58,19 @@ public abstract class ServerPlayerInteractionManagerMixin {
     // Inject at RETURN to do the actual work
     @Inject(method = "tryBreakBlock", at = @At(value = "RETURN"))
     private void onBlockBreak(BlockPos pos, CallbackInfoReturnable<Boolean> cir) {
-        // Log ALL block breaks to see if mixin is called at all
-        if (world != null && player != null) {
+        // Trace every block break - this runs for every block broken on the server, so it's DEBUG only
+        // (a single level check when disabled, the message isn't even built)
+        if (world != null && player != null && AreaMineLog.isEnabled(AreaMineLog.Level.DEBUG)) {
             BlockState blockState = world.getBlockState(pos);
-            String blockId = net.minecraft.registry.Registries.BLOCK.getId(blockState.getBlock()).toString();
-            boolean isOre = blockId.contains("_ore") || 
-                           (blockId.contains("deepslate") && (blockId.contains("ore") || blockId.contains("_ore")));
-            
-            // Log ALL block breaks (not just ores) to see if mixin is called
-            System.out.println("[Area Mine] [MIXIN] tryBreakBlock called: " + blockId + " at " + pos + " (isOre=" + isOre + ", returnValue=" + cir.getReturnValue() + ")");
-            
-            if (isOre) {
-                System.out.println("[Area Mine] [MIXIN] isBreakingArea: " + AreaMineHandler.isBreakingArea(player.getUuid()));
-            }
+            boolean isOre = BlockClassifier.isVeinOre(blockState);
+            AreaMineLog.debug("MIXIN", () -> "tryBreakBlock called: " + blockState.getBlock() + " at " + pos + " (isOre=" + isOre +
+                ", returnValue=" + cir.getReturnValue() + ", isBreakingArea=" + AreaMineHandler.isBreakingArea(player.getUuid()) + ")");
         }
         
         // CRITICAL: Check if AreaMineHandler is already handling this (event-based system)
         // If so, DO NOT process here to prevent duplicate/recursive area mining
         if (AreaMineHandler.isBreakingArea(player.getUuid())) {
-            System.out.println("[Area Mine] [MIXIN] Skipping - AreaMineHandler is already processing");
+            AreaMineLog.debug("MIXIN", () -> "Skipping - AreaMineHandler is already processing");
             miningFace = null;
             return;
         }
@@ -240,10 +232,9 @@ public abstract class ServerPlayerInteractionManagerMixin {
             depthSize += 2;
         }
 
-        // Get blocks to mine using the selected pattern
-        List<BlockPos> blocksToMine = MiningPattern.getBlocksToMine(
+        // Get blocks to mine using the selected pattern (cached offset template)
+        MiningPattern.Template template = MiningPattern.getTemplate(
             currentPattern, 
-            pos, 
             miningFace,
             horizontalSize,
             verticalSize,
@@ -254,16 +245,21 @@ public abstract class ServerPlayerInteractionManagerMixin {
         BlockState originalBlock = world.getBlockState(pos);
         
         // Filter blocks based on configuration
-        List<BlockPos> filteredBlocks = new ArrayList<>();
-        for (BlockPos blockPos : blocksToMine) {
-            BlockState blockState = world.getBlockState(blockPos);
+        // Packed positions from the per-thread pool - handed to the breaker or released after instant breaking
+        LongArrayList filteredBlocks = PositionPool.acquireList();
+        // Read candidates through their chunk sections - one chunk lookup per section instead of per block
+        SectionBlockReader reader = new SectionBlockReader(world);
+        BlockPos.Mutable blockPos = new BlockPos.Mutable();
+        for (int i = 0; i < template.size(); i++) {
+            template.getPos(i, pos, blockPos);
+            BlockState blockState = reader.getBlockState(blockPos);
             
-            // Check blacklist/whitelist
-            String blockId = Registries.BLOCK.getId(blockState.getBlock()).toString();
-            if (!AreaEnchantMod.config.blockBlacklist.isEmpty() && AreaEnchantMod.config.blockBlacklist.contains(blockId)) {
+            // Check blacklist/whitelist (precomputed per state, see BlockClassifier)
+            int traits = BlockClassifier.getTraits(blockState);
+            if ((traits & BlockClassifier.BLACKLISTED) != 0) {
                 continue;
             }
-            if (!AreaEnchantMod.config.blockWhitelist.isEmpty() && !AreaEnchantMod.config.blockWhitelist.contains(blockId)) {
+            if (!AreaEnchantMod.config.blockWhitelist.isEmpty() && (traits & BlockClassifier.WHITELISTED) == 0) {
                 continue;
             }
             
@@ -288,7 +284,7 @@ public abstract class ServerPlayerInteractionManagerMixin {
                 }
             }
             
-            filteredBlocks.add(blockPos);
+            filteredBlocks.add(blockPos.asLong());
             
             // Max block limit check
             if (filteredBlocks.size() >= AreaEnchantMod.config.maxBlocksPerActivation) {
@@ -304,9 +300,10 @@ public abstract class ServerPlayerInteractionManagerMixin {
         // Particles effect
         if (AreaEnchantMod.config.particleEffects) {
             player.sendMessage(Text.literal("§a[Area Mine] Found " + filteredBlocks.size() + " blocks to mine!"), false);
-            for (BlockPos blockPos : filteredBlocks) {
+            for (int i = 0; i < filteredBlocks.size(); i++) {
+                long packedPos = filteredBlocks.getLong(i);
                 world.spawnParticles(ParticleTypes.ENCHANT,
-                        blockPos.getX() + 0.5, blockPos.getY() + 0.5, blockPos.getZ() + 0.5,
+                        BlockPos.unpackLongX(packedPos) + 0.5, BlockPos.unpackLongY(packedPos) + 0.5, BlockPos.unpackLongZ(packedPos) + 0.5,
                         3, 0.5, 0.5, 0.5, 0.0);
             }
         }
@@ -357,7 +354,7 @@ public abstract class ServerPlayerInteractionManagerMixin {
         int blocksMined = 0;
         long startTime = world.getTime();
         String dimensionId = world.getRegistryKey().getValue().toString();
-        Map<String, Integer> blockCounts = new HashMap<>();
+        Map<Block, Integer> blockCounts = new HashMap<>(); // Converted to block ids once, after breaking
         
         // Calculate durability multiplier with tier scaling and Unbreaking
         double durabilityMultiplier = getDurabilityMultiplier(level);
@@ -367,9 +364,12 @@ public abstract class ServerPlayerInteractionManagerMixin {
         
         // Check if auto-pickup is enabled (config or upgrade; no upgrade in simple mode)
         boolean autoPickup = AreaEnchantMod.config.autoPickup || playerData.hasUpgrade("auto_pickup");
+        // Auto-pickup drops are inserted together after the loop
+        DropAggregator pickup = new DropAggregator();
         
         try {
-            for (BlockPos otherPos : filteredBlocks) {
+            for (int i = 0; i < filteredBlocks.size(); i++) {
+                BlockPos otherPos = BlockPos.fromLong(filteredBlocks.getLong(i));
                 BlockState blockState = world.getBlockState(otherPos);
                 
                 // Skip air blocks - don't mine, track, or count them
@@ -384,8 +384,7 @@ public abstract class ServerPlayerInteractionManagerMixin {
                 AdvancementTracker.onDiamondMined(player, blockState.getBlock());
                 
                 // Track block type stats
-                String blockId = Registries.BLOCK.getId(blockState.getBlock()).toString();
-                blockCounts.put(blockId, blockCounts.getOrDefault(blockId, 0) + 1);
+                blockCounts.merge(blockState.getBlock(), 1, Integer::sum);
                 
                 // Break blocks directly (can't use tryBreakBlock when isBreakingArea is true)
                 // Skip the original block that was already broken
@@ -407,8 +406,7 @@ public abstract class ServerPlayerInteractionManagerMixin {
                 boolean broken = false;
                 
                 // Verify the block is still there and matches what we expect
-                String expectedBlockId = Registries.BLOCK.getId(blockState.getBlock()).toString();
-                if (!stateBeforeBreak.isAir() && Registries.BLOCK.getId(stateBeforeBreak.getBlock()).toString().equals(expectedBlockId)) {
+                if (!stateBeforeBreak.isAir() && stateBeforeBreak.getBlock() == blockState.getBlock()) {
                     // Set block to air directly (flag 3 = notify neighbors and listeners, but won't trigger PlayerBlockBreakEvents)
                     world.setBlockState(otherPos, net.minecraft.block.Blocks.AIR.getDefaultState(), 3);
                     
@@ -425,13 +423,9 @@ public abstract class ServerPlayerInteractionManagerMixin {
                     
                     // Handle drops (auto-pickup or drop in world)
                     if (!player.isCreative()) {
-                    for (ItemStack drop : drops) {
+                        for (ItemStack drop : drops) {
                             if (autoPickup) {
-                        if (!player.getInventory().insertStack(drop)) {
-                            // Inventory full, drop item
-                            ItemEntity itemEntity = new ItemEntity(world, otherPos.getX() + 0.5, otherPos.getY() + 0.5, otherPos.getZ() + 0.5, drop);
-                            world.spawnEntity(itemEntity);
-                                }
+                                pickup.add(drop, otherPos);
                             } else {
                                 Block.dropStack(world, otherPos, drop);
                             }
@@ -447,6 +441,14 @@ public abstract class ServerPlayerInteractionManagerMixin {
                 blocksMined++;
             }
             
+            // One pass over the inventory for all auto-pickup drops - what doesn't fit is spawned merged
+            // (not recorded for undo, this path never was)
+            if (!pickup.isEmpty()) {
+                DropAggregator leftovers = new DropAggregator();
+                pickup.insertInto(player.getInventory(), null, leftovers::add);
+                leftovers.spawn(world, null);
+            }
+            
             // Apply durability cost ONCE for all blocks mined (not per block)
             if (AreaEnchantMod.config.durabilityScaling && !player.isCreative() && blocksMined > 0) {
                 // Calculate total durability cost based on blocks mined
@@ -459,11 +461,12 @@ public abstract class ServerPlayerInteractionManagerMixin {
             }
             
             // Update stats
+            Map<String, Integer> blockIdCounts = BatchedBlockBreaker.toBlockIdCounts(blockCounts);
             playerData.addBlocksMined(blocksMined);
             playerData.addDimensionStats(dimensionId, blocksMined);
             // Only count block types for simple-mode upgrades when mined with Area Mine on the tool
             if (entry != null && EnchantmentHelper.getLevel(entry, stack) > 0) {
-                for (Map.Entry<String, Integer> blockEntry : blockCounts.entrySet()) {
+                for (Map.Entry<String, Integer> blockEntry : blockIdCounts.entrySet()) {
                     playerData.addBlockTypeStats(blockEntry.getKey(), blockEntry.getValue());
                 }
             }
@@ -471,7 +474,7 @@ public abstract class ServerPlayerInteractionManagerMixin {
             // Award mining tokens (no tokens in simple mode)
             if (AreaEnchantMod.config.enableUpgradeSystem && !AreaEnchantMod.config.simpleMode) {
                 // Calculate base tokens using block values
-                int tokensEarned = calculateTokensFromBlocks(blockCounts);
+                int tokensEarned = calculateTokensFromBlocks(blockIdCounts);
                 
                 // Efficiency synergy: Bonus tokens based on efficiency level
                 if (efficiencyLevel > 0 && AreaEnchantMod.config.enableEnchantmentSynergies) {
@@ -496,7 +499,7 @@ public abstract class ServerPlayerInteractionManagerMixin {
             
             // CRITICAL: Store undo data in separate storage (NOT using deprecated method)
             // This ensures undo data persists even when PlayerData is reloaded from disk
-            if (AreaEnchantMod.config.enableUndo && !undoData.blocks.isEmpty()) {
+            if (AreaEnchantMod.config.enableUndo && !undoData.isEmpty()) {
                 PlayerDataManager.setUndoData(player.getUuid(), undoData);
             }
             
@@ -519,7 +522,7 @@ public abstract class ServerPlayerInteractionManagerMixin {
             if (blocksMined > 0 && !AreaEnchantMod.config.simpleMode) {
                 int tokensEarned = 0;
                 if (AreaEnchantMod.config.enableUpgradeSystem) {
-                    tokensEarned = calculateTokensFromBlocks(blockCounts);
+                    tokensEarned = calculateTokensFromBlocks(blockIdCounts);
                     if (efficiencyLevel > 0 && AreaEnchantMod.config.enableEnchantmentSynergies) {
                         double efficiencyBonus = efficiencyLevel * AreaEnchantMod.config.efficiencySpeedBonus;
                         tokensEarned = (int) (tokensEarned * (1.0 + efficiencyBonus));
@@ -539,9 +542,10 @@ public abstract class ServerPlayerInteractionManagerMixin {
             }
             
             // Save player data after significant operation
-            PlayerDataManager.saveToDisk(player.getUuid(), playerData);
+            PlayerDataManager.save(player.getUuid(), playerData);
             
         } finally {
+            PositionPool.release(filteredBlocks);
             // CRITICAL: Clear BOTH local and global flags
             isBreakingArea = false;
             AreaMineHandler.clearBreakingFlag(player.getUuid());